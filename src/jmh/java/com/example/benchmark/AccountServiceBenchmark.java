@@ -0,0 +1,58 @@
+package com.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Account;
+import com.example.service.AccountService;
+
+/**
+ * {@link AccountService#loginWithAccount(Account)} for an account of data.sql against an embedded H2 database holding
+ * {@code accountCount} more accounts. The first login during warmup upgrades the plaintext password to a hash, so 
+ * the measurement covers the steady state of a hashed password.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AccountServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int accountCount;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seedAccounts(context, accountCount);
+        accountService = context.getBean(AccountService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account loginWithAccount() {
+        return accountService.loginWithAccount(new Account("testuser1", "password")).join();
+    }
+}
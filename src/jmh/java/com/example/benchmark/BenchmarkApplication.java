@@ -0,0 +1,78 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.SocialMediaApp;
+
+/**
+ * Starts the application without a web server against its embedded H2 database, and bulk loads benchmark datasets
+ * with plain JDBC batches, which is much faster than going through the services.
+ */
+final class BenchmarkApplication {
+
+    /** First id of seeded rows, above the rows of data.sql. */
+    static final int FIRST_SEEDED_ID = 10000;
+
+    private static final int SEED_BATCH_SIZE = 10000;
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * The posting rate limit stays off even where application.properties turns it on: benchmark loops post and edit as
+     * one account far faster than any user could, and would measure the 429 path instead of the write. Settings are passed as command line arguments, because default
+     * properties rank below application.properties and would not override it.
+     *
+     * @param properties further application properties as key=value, for benchmarks comparing configurations
+     */
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(List.of("--logging.level.root=WARN", "--app.ratelimit.enabled=false"));
+        for (String property : properties){
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(SocialMediaApp.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Inserts {@code count} messages spread over the four accounts of data.sql.
+     */
+    static void seedMessages(ConfigurableApplicationContext context, int count) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> rows = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < count; i++){
+            rows.add(new Object[] {FIRST_SEEDED_ID + i, 9996 + i % 4, "benchmark message " + i, 1669947792L + i});
+            if (rows.size() == SEED_BATCH_SIZE || i == count - 1){
+                jdbcTemplate.batchUpdate(
+                        "insert into message (messageId, postedBy, messageText, timePostedEpoch) values (?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts {@code count} accounts named user0, user1, ... with plaintext passwords, the way rows written before 
+     * password hashing look.
+     */
+    static void seedAccounts(ConfigurableApplicationContext context, int count) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> rows = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < count; i++){
+            rows.add(new Object[] {FIRST_SEEDED_ID + i, "user" + i, "password"});
+            if (rows.size() == SEED_BATCH_SIZE || i == count - 1){
+                jdbcTemplate.batchUpdate("insert into account (accountId, username, password) values (?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Message;
+import com.example.service.MessageBatchResult;
+import com.example.service.MessageService;
+
+/**
+ * {@link MessageService#addMessages(List)} of {@code batchSize} messages with one sequence round trip per id 
+ * ({@code allocationSize} 1, how ids were generated before) against pooled-lo blocks of 50. Each allocation size gets
+ * its own application context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IdAllocationBenchmark {
+
+    @Param({"1", "50"})
+    public int allocationSize;
+
+    @Param({"500"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private List<Message> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("spring.jpa.properties.app.id.allocation-size=" + allocationSize);
+        messageService = context.getBean(MessageService.class);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++){
+            batch.add(new Message(9999, "benchmark message " + i, 1669947792L));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MessageBatchResult> addMessages() {
+        return messageService.addMessages(batch);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.entity.Message;
+import com.example.index.MessageTextIndex;
+
+/**
+ * {@link MessageTextIndex#search(String, int)}, the index behind GET /messages/search, for each query shape at
+ * {@code messageCount} messages. The messages are synthetic: 6 to 15 words each, drawn from a vocabulary of 50,000
+ * words with a Zipf-like skew, so a few words are in a large share of the messages and most are rare. The index is
+ * filled through its listener methods, without the app or the database, and every shape cycles through a fixed set
+ * of random queries.
+ *
+ * Setup prints the index's own memory estimate, also served at GET /admin/indexes/messages. Run with -prof gc for
+ * the allocation rate of the queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MessageSearchBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERIES = 1024;
+    private static final int LIMIT = 50;
+
+    @Param({"1000000"})
+    public int messageCount;
+
+    private MessageTextIndex index;
+    private String[] rareTerm;
+    private String[] commonTerm;
+    private String[] twoTerms;
+    private String[] threeTerms;
+    private String[] prefix;
+    private String[] termAndPrefix;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++){
+            words[i] = "w" + Integer.toString(i, 36) + (char) ('a' + i % 26);
+        }
+        index = new MessageTextIndex();
+        for (int id = 1; id <= messageCount; id++){
+            StringBuilder text = new StringBuilder();
+            int length = 6 + random.nextInt(10);
+            for (int w = 0; w < length; w++){
+                text.append(words[zipf(random)]).append(' ');
+            }
+            index.messageCreated(new Message(id, 1, text.toString(), 1669947792L));
+        }
+        System.out.printf("messages=%d terms=%d estimated-bytes/message=%.1f%n", index.size(), index.getTermCount(),
+                (double) index.getSizeInBytes() / index.size());
+
+        rareTerm = queries(random, r -> words[VOCABULARY / 2 + r.nextInt(VOCABULARY / 2)]);
+        commonTerm = queries(random, r -> words[r.nextInt(10)]);
+        twoTerms = queries(random, r -> words[r.nextInt(100)] + " " + words[r.nextInt(1000)]);
+        threeTerms = queries(random,
+                r -> words[r.nextInt(50)] + " " + words[r.nextInt(50)] + " " + words[r.nextInt(50)]);
+        prefix = queries(random, r -> words[r.nextInt(VOCABULARY)].substring(0, 3) + "*");
+        termAndPrefix = queries(random,
+                r -> words[r.nextInt(100)] + " " + words[r.nextInt(VOCABULARY)].substring(0, 3) + "*");
+    }
+
+    @Benchmark
+    public int[] rareTerm() {
+        return index.search(next(rareTerm), LIMIT);
+    }
+
+    @Benchmark
+    public int[] commonTerm() {
+        return index.search(next(commonTerm), LIMIT);
+    }
+
+    @Benchmark
+    public int[] twoTerms() {
+        return index.search(next(twoTerms), LIMIT);
+    }
+
+    @Benchmark
+    public int[] threeTerms() {
+        return index.search(next(threeTerms), LIMIT);
+    }
+
+    @Benchmark
+    public int[] prefix() {
+        return index.search(next(prefix), LIMIT);
+    }
+
+    @Benchmark
+    public int[] termAndPrefix() {
+        return index.search(next(termAndPrefix), LIMIT);
+    }
+
+    private String next(String[] queries) {
+        return queries[next++ & (QUERIES - 1)];
+    }
+
+    private static String[] queries(Random random, Function<Random, String> query) {
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++){
+            queries[i] = query.apply(random);
+        }
+        return queries;
+    }
+
+    /**
+     * Word rank with a probability falling roughly as 1/rank.
+     */
+    private static int zipf(Random random) {
+        return (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of a {@code messageCount} long message list, the response body of GET /messages, with an
+ * ObjectMapper configured like the one Spring MVC uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MessageSerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int messageCount;
+
+    private ObjectMapper objectMapper;
+    private List<Message> messages;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        messages = new ArrayList<>(messageCount);
+        for (int i = 0; i < messageCount; i++){
+            messages.add(new Message(BenchmarkApplication.FIRST_SEEDED_ID + i, 9996 + i % 4, "benchmark message " + i, 
+                    1669947792L + i));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeMessages() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(messages);
+    }
+}
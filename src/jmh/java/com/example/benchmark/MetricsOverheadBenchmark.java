@@ -0,0 +1,109 @@
+package com.example.benchmark;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import com.example.controller.SocialMediaController;
+import com.example.metrics.HttpMetricsInterceptor;
+import com.example.metrics.MetricsRegistry;
+import com.example.metrics.RepositoryMetricsInterceptor;
+import com.example.repository.MessageRepository;
+
+/**
+ * Cost the metrics add to a request: one pass through the handler interceptor and one through the repository
+ * interceptor around a call that does nothing. Budget is a few microseconds per request in total.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private HttpMetricsInterceptor httpInterceptor;
+    private RepositoryMetricsInterceptor repositoryInterceptor;
+    private HandlerMethod handler;
+    private MethodInvocation invocation;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        httpInterceptor = new HttpMetricsInterceptor(metricsRegistry);
+        repositoryInterceptor = new RepositoryMetricsInterceptor(metricsRegistry, MessageRepository.class);
+        handler = new HandlerMethod(new SocialMediaController(), 
+                SocialMediaController.class.getMethod("getMessageById", int.class));
+        Method findById = MessageRepository.class.getMethod("findById", Object.class);
+        invocation = new NoOpInvocation(findById);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletRequest baseline() {
+        return new MockHttpServletRequest("GET", "/messages/9999");
+    }
+
+    @Benchmark
+    public MockHttpServletRequest httpRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/messages/9999");
+        httpInterceptor.preHandle(request, response, handler);
+        httpInterceptor.afterCompletion(request, response, handler, null);
+        return request;
+    }
+
+    @Benchmark
+    public Object repositoryInvocation() throws Throwable {
+        return repositoryInterceptor.invoke(invocation);
+    }
+
+    private static final class NoOpInvocation implements MethodInvocation {
+
+        private final Method method;
+
+        NoOpInvocation(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return new Object[0];
+        }
+
+        @Override
+        public Object proceed() {
+            return method;
+        }
+
+        @Override
+        public Object getThis() {
+            return null;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return method;
+        }
+    }
+}
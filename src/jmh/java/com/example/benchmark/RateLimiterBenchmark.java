@@ -0,0 +1,57 @@
+package com.example.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.exception.TooManyRequestsException;
+import com.example.ratelimit.PostingRateLimiter;
+
+/**
+ * {@link PostingRateLimiter#acquire(long)} with every available core calling it at once, the way request threads do.
+ * Keys are drawn at random from {@code accountCount} accounts; with a single account all threads hammer one bucket,
+ * the worst case for contention, and almost every call takes the 429 path. The limiter is used directly, without the
+ * app.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    @Param({"100000", "1"})
+    public int accountCount;
+
+    private PostingRateLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limiter = new PostingRateLimiter(true, 10, 20, 60_000, 100_000);
+    }
+
+    @Benchmark
+    public boolean acquire() {
+        try {
+            limiter.acquire(PostingRateLimiter.accountKey(ThreadLocalRandom.current().nextInt(accountCount)));
+            return true;
+        } catch (TooManyRequestsException e) {
+            return false;
+        }
+    }
+}
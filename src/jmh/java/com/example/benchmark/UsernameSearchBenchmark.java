@@ -0,0 +1,86 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.index.UsernamePrefixIndex;
+
+/**
+ * {@link UsernamePrefixIndex#search(String, int)}, the index behind GET /accounts/search, for prefixes of
+ * {@code prefixLength} letters at {@code usernameCount} accounts. Usernames are synthetic, a random lower-case word of
+ * 4 to 8 letters followed by a number, and are registered one at a time through {@link UsernamePrefixIndex#add(String)}
+ * in random order, the way sign-ups fill the index. Every run cycles through a fixed set of prefixes of registered
+ * usernames.
+ *
+ * Setup prints how long the build took and the index's own memory estimate, also served at
+ * GET /admin/indexes/username-prefixes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UsernameSearchBenchmark {
+
+    private static final int QUERIES = 1024;
+    private static final int LIMIT = 10;
+
+    @Param({"1000000"})
+    public int usernameCount;
+
+    @Param({"1", "2", "3", "4"})
+    public int prefixLength;
+
+    private UsernamePrefixIndex index;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] usernames = new String[usernameCount];
+        for (int i = 0; i < usernameCount; i++){
+            usernames[i] = word(random, 4 + random.nextInt(5)) + i;
+        }
+        index = new UsernamePrefixIndex(1024);
+        long start = System.nanoTime();
+        for (String username : usernames){
+            index.add(username);
+        }
+        System.out.printf("usernames=%d build-seconds=%.2f estimated-bytes/username=%.1f%n", index.size(),
+                (System.nanoTime() - start) / 1e9, (double) index.getSizeInBytes() / index.size());
+
+        prefixes = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++){
+            prefixes[i] = usernames[random.nextInt(usernameCount)].substring(0, prefixLength);
+        }
+    }
+
+    @Benchmark
+    public List<String> search() {
+        return index.search(prefixes[next++ & (QUERIES - 1)], LIMIT);
+    }
+
+    private static String word(Random random, int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++){
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.cache;
+
+/**
+ * Point-in-time counters of a {@link LruCache}, serialized as-is by the admin endpoints.
+ */
+public class CacheStats {
+
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+
+    public CacheStats(int size, int maxSize, long hits, long misses, long evictions, long expirations) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return entries dropped because the cache was full
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return entries dropped because their time-to-live ran out
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.example.service.MessageListener;
+
+/**
+ * Version counters behind the strong ETags of GET /messages/{messageId} and GET /accounts/{accountId}/messages: one
+ * per message, and one per account that changes with any message the account posted. A conditional GET compares
+ * against the counter alone, so answering 304 neither reads the database nor serializes a body.
+ *
+ * Every write takes the next value of a single clock. Only the app.etag.max-tracked most recently changed messages and
+ * accounts keep their own version; when the oldest is dropped its version becomes the floor that every untracked key
+ * reports. Because the floor only grows and a write always takes a value above it, a version never comes back with
+ * different content: at worst a client whose key was dropped gets one full response it could have been spared. The
+ * ETag also names the process, as the in-memory database starts over with it.
+ *
+ * Listeners run in order, and this one runs after the caches, so a reader that sees the new version also gets the new
+ * content from them.
+ */
+@Order(Ordered.LOWEST_PRECEDENCE)
+@Component
+public class ChangeVersions implements MessageListener {
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    private final Versions messages;
+    private final Versions accounts;
+
+    public ChangeVersions(@Value("${app.etag.max-tracked:100000}") int maxTracked) {
+        this.messages = new Versions(maxTracked, clock);
+        this.accounts = new Versions(maxTracked, clock);
+    }
+
+    /**
+     * @return the strong ETag of GET /messages/{messageId}, quoted
+     */
+    public String messageETag(int messageId) {
+        return eTag(messages.get(messageId));
+    }
+
+    /**
+     * @return the strong ETag of the messages posted by accountId, quoted
+     */
+    public String accountETag(int accountId) {
+        return eTag(accounts.get(accountId));
+    }
+
+    /**
+     * Moves the versions of a message and of its author on, for writes that are visible before listeners are told,
+     * like a message queued for write-behind.
+     */
+    public void messageChanged(Message message) {
+        messages.bump(message.getMessageId());
+        if (message.getPostedBy() != null){
+            accounts.bump(message.getPostedBy());
+        }
+    }
+
+    @Override
+    public void messageCreated(Message message) {
+        messageChanged(message);
+    }
+
+    @Override
+    public void messageUpdated(Message oldMessage, Message newMessage) {
+        messageChanged(newMessage);
+    }
+
+    @Override
+    public void messageDeleted(Message message) {
+        messageChanged(message);
+    }
+
+    private String eTag(long version) {
+        return "\"" + instance + "-" + version + "\"";
+    }
+
+    /**
+     * Versions of the most recently changed keys, in the order they changed, so the eldest entry holds the lowest
+     * version.
+     */
+    private static final class Versions {
+
+        private final int maxSize;
+        private final AtomicLong clock;
+        private final LinkedHashMap<Integer, Long> entries = new LinkedHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private long floor;
+
+        Versions(int maxSize, AtomicLong clock) {
+            this.maxSize = maxSize;
+            this.clock = clock;
+        }
+
+        long get(int key) {
+            lock.lock();
+            try {
+                Long version = entries.get(key);
+                return version != null ? version : floor;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void bump(int key) {
+            lock.lock();
+            try {
+                //the clock is read under the lock and the key re-inserted at the end, keeping the entries ordered
+                entries.remove(key);
+                entries.put(key, clock.incrementAndGet());
+                if (entries.size() > maxSize){
+                    Iterator<Map.Entry<Integer, Long>> eldest = entries.entrySet().iterator();
+                    floor = Math.max(floor, eldest.next().getValue());
+                    eldest.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache with an optional time-to-live per entry, evicting the least recently used entry unless it has been
+ * used more often than the one that would replace it.
+ *
+ * Keys are spread over up to 16 segments by hash, each a small cache of its own behind its own lock, so lookups of
+ * different keys rarely wait for each other; a cache of fewer than 128 entries is a single segment. A lock is held
+ * only for the map operation itself and never while a value is being loaded.
+ *
+ * Within a segment, eviction follows W-TinyLFU. A new entry goes into a window of about 1% of the segment, kept in
+ * least-recently-used order. The entry pushed out of the window joins the probation part of the main area, and once
+ * that area is full, it competes with the least recently used entry on probation: whichever was used more often
+ * stays. An entry hit on probation moves to the protected part, up to 80% of the main area, and the least recently
+ * used protected entry goes back on probation to make room. How often a key was used is estimated by a count-min
+ * sketch of four 4-bit counters per key, halved every ten uses per entry so that old popularity fades. A burst of
+ * keys used once, like a scan, thus passes through the window and probation without pushing out the entries that are
+ * read again and again.
+ *
+ * Loaders use {@link #stamp(Object)} and {@link #putIfFresh(Object, Object, long)} so that a value read from the
+ * database before a concurrent {@link #invalidate(Object)} of its key can never be cached after it.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxSize maximum number of entries, an entry is evicted past it
+     * @param ttlNanos time an entry stays valid after it was put, 0 for no expiry
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize, long ttlNanos) {
+        if (maxSize < 1){
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+        int count = Math.max(1, Integer.highestOneBit(Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++){
+            segments[i] = new Segment<>(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the cached value, or {@code null} if absent or expired
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.sketch.increment(key);
+            Entry<V> entry = segment.access(key);
+            if (entry != null && entry.isExpired(ttlNanos)){
+                segment.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null){
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Looks up a value for a writer that only updates values already cached, without counting a hit or miss.
+     *
+     * @return the cached value, or {@code null} if absent or expired
+     */
+    public V peek(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.find(key);
+            return entry == null || entry.isExpired(ttlNanos) ? null : entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Unconditionally caches a value, for writers that know it is current.
+     */
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            putLocked(segment, key, value);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * @return token to take before loading the value of a key, to pass to {@link #putIfFresh(Object, Object, long)}
+     */
+    public long stamp(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            return segment.invalidations;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a loaded value unless an invalidation happened in the key's segment since the stamp was taken, in which
+     * case the value may predate the write that invalidated and is dropped.
+     *
+     * @return true if the value was cached
+     */
+    public boolean putIfFresh(K key, V value, long stamp) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            if (segment.invalidations != stamp){
+                return false;
+            }
+            putLocked(segment, key, value);
+            return true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.remove(key);
+            segment.invalidations++;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments){
+            segment.lock.lock();
+            try {
+                size += segment.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(size(), maxSize, hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return segments[(hash >>> 16) & (segments.length - 1)];
+    }
+
+    private void putLocked(Segment<K, V> segment, K key, V value) {
+        Entry<V> entry = new Entry<>(value);
+        if (segment.replace(key, entry)){
+            return;
+        }
+        segment.sketch.increment(key);
+        segment.window.put(key, entry);
+        if (segment.window.size() <= segment.windowSize){
+            return;
+        }
+        Map.Entry<K, Entry<V>> candidate = removeEldest(segment.window);
+        if (segment.probation.size() + segment.protectedEntries.size() < segment.mainSize){
+            segment.probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        //the entry leaving the window only replaces the least recently used one of the main area if used more often
+        LinkedHashMap<K, Entry<V>> victims = segment.probation.isEmpty() ? segment.protectedEntries
+                : segment.probation;
+        if (!victims.isEmpty() && segment.sketch.frequency(candidate.getKey())
+                > segment.sketch.frequency(victims.keySet().iterator().next())){
+            removeEldest(victims);
+            segment.probation.put(candidate.getKey(), candidate.getValue());
+        }
+        evictions.increment();
+    }
+
+    private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> entries) {
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        Map.Entry<K, V> entry = eldest.next();
+        eldest.remove();
+        return entry;
+    }
+
+    private static final class Segment<K, V> {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final int windowSize;
+        final int mainSize;
+        final int protectedSize;
+        final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+        final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+        final LinkedHashMap<K, Entry<V>> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+        final FrequencySketch sketch;
+        long invalidations;
+
+        Segment(int maxSize) {
+            this.windowSize = Math.max(1, maxSize / 100);
+            this.mainSize = maxSize - windowSize;
+            this.protectedSize = mainSize * 4 / 5;
+            this.sketch = new FrequencySketch(maxSize);
+        }
+
+        /**
+         * Looks up an entry for a read, moving it to the protected part if it was on probation.
+         */
+        Entry<V> access(K key) {
+            Entry<V> entry = window.get(key);
+            if (entry != null){
+                return entry;
+            }
+            entry = probation.remove(key);
+            if (entry == null){
+                return protectedEntries.get(key);
+            }
+            protectedEntries.put(key, entry);
+            if (protectedEntries.size() > protectedSize){
+                Map.Entry<K, Entry<V>> demoted = removeEldest(protectedEntries);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return entry;
+        }
+
+        Entry<V> find(K key) {
+            Entry<V> entry = window.get(key);
+            if (entry == null){
+                entry = probation.get(key);
+            }
+            return entry != null ? entry : protectedEntries.get(key);
+        }
+
+        /**
+         * @return true if the key was cached and now holds the entry
+         */
+        boolean replace(K key, Entry<V> entry) {
+            return window.replace(key, entry) != null || probation.replace(key, entry) != null
+                    || protectedEntries.replace(key, entry) != null;
+        }
+
+        void remove(K key) {
+            if (window.remove(key) == null && probation.remove(key) == null){
+                protectedEntries.remove(key);
+            }
+        }
+
+        int size() {
+            return window.size() + probation.size() + protectedEntries.size();
+        }
+    }
+
+    /**
+     * Count-min sketch of how often keys were used: four 4-bit counters per key, 16 to a long, read as their minimum.
+     * Every counter is halved once the sketch has counted ten uses per entry of its segment.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L};
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxSize) {
+            this.table = new long[Math.max(8, Integer.highestOneBit(Math.max(1, maxSize - 1)) << 1)];
+            this.sampleSize = 10 * maxSize;
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++){
+                long slot = slot(hash, i);
+                frequency = Math.min(frequency, (int) (table[index(slot)] >>> shift(slot)) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++){
+                long slot = slot(hash, i);
+                int index = index(slot);
+                int shift = shift(slot);
+                if (((table[index] >>> shift) & 15) < 15){
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize){
+                for (int i = 0; i < table.length; i++){
+                    table[i] = (table[i] >>> 1) & HALF_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private long slot(int hash, int row) {
+            long slot = (hash + SEEDS[row]) * SEEDS[row];
+            return slot + (slot >>> 32);
+        }
+
+        private int index(long slot) {
+            return (int) slot & (table.length - 1);
+        }
+
+        private static int shift(long slot) {
+            return (int) (slot >>> 40 & 15) << 2;
+        }
+
+        private static int spread(int hash) {
+            hash *= 0x31848bab;
+            return hash ^ (hash >>> 14);
+        }
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+        final long createdNanos = System.nanoTime();
+
+        Entry(V value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return ttlNanos > 0 && System.nanoTime() - createdNanos > ttlNanos;
+        }
+    }
+}
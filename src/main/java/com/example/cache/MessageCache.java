@@ -0,0 +1,81 @@
+package com.example.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.example.service.MessageListener;
+
+/**
+ * Read-through cache of single messages by messageId, sized by app.cache.message.max-size and expired after 
+ * app.cache.message.ttl-seconds. Entries are invalidated as messages are deleted, and replaced by the new text as they
+ * are edited, so a message that was read or edited is still known to the next edit, which then needs no read of its 
+ * own.
+ */
+@Order(0)
+@Component
+public class MessageCache implements MessageListener {
+
+    private final LruCache<Integer, Message> cache;
+
+    public MessageCache(@Value("${app.cache.message.max-size:10000}") int maxSize,
+            @Value("${app.cache.message.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = new LruCache<>(maxSize, TimeUnit.SECONDS.toNanos(ttlSeconds));
+    }
+
+    /**
+     * @return the cached message, or {@code null} on a miss
+     */
+    public Message get(int messageId) {
+        return cache.get(messageId);
+    }
+
+    /**
+     * Looks up a message without counting a hit or miss, for callers that only need what never changes, like its 
+     * author.
+     * 
+     * @return the cached message, or {@code null} if it is not cached
+     */
+    public Message peek(int messageId) {
+        return cache.peek(messageId);
+    }
+
+    /**
+     * @return token to take before reading the message from the database
+     */
+    public long stamp(int messageId) {
+        return cache.stamp(messageId);
+    }
+
+    /**
+     * Caches a copy of a message read from the database, unless it was invalidated since the stamp was taken.
+     */
+    public void putIfFresh(Message message, long stamp) {
+        Message copy = new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(), 
+                message.getTimePostedEpoch());
+        cache.putIfFresh(copy.getMessageId(), copy, stamp);
+    }
+
+    public void invalidate(int messageId) {
+        cache.invalidate(messageId);
+    }
+
+    @Override
+    public void messageUpdated(Message oldMessage, Message newMessage) {
+        //the invalidation fails any read that started before the edit, then the edited message is current
+        invalidate(oldMessage.getMessageId());
+        cache.put(newMessage.getMessageId(), newMessage);
+    }
+
+    @Override
+    public void messageDeleted(Message message) {
+        invalidate(message.getMessageId());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageListener;
+
+/**
+ * The newest app.feed.recent.capacity messages across all accounts, for GET /messages?recent=N.
+ *
+ * Messages live in a fixed ring of slots. A writer claims the next position with one atomic increment and publishes
+ * the message into its slot, so writers never wait for each other. Every slot records the position it was written
+ * for, which lets a reader tell a current slot from one that was already lapped or is not published yet and skip it.
+ * A read is a bounded walk over at most N slots without locks or retries, so readers are wait-free and do not slow
+ * down writers however often they poll. Edits and deletes find the slot holding the message through a map of
+ * positions by messageId and swap it with a compare-and-set; a delete leaves the slot empty.
+ *
+ * Listeners of different writes run in whatever order their transactions commit, so the edit or delete of a message
+ * can arrive before its creation. The listener calls of one message are therefore serialized by a small set of
+ * striped locks, and an edit or delete of a message the ring does not hold is remembered for a while, bounded by the
+ * capacity, so a creation that arrives later publishes the edited text or nothing instead of resurrecting it.
+ *
+ * The ring is filled with the newest messages by messageId once all beans are initialized, before the web server
+ * accepts requests, and is kept current as a {@link MessageListener} after that.
+ */
+@Order(0)
+@Component
+public class RecentFeed implements MessageListener, SmartInitializingSingleton {
+
+    private static final int STRIPES = 64;
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    //position of the slot of every message in the ring
+    private final Map<Integer, Long> positions = new ConcurrentHashMap<>();
+    //edits and deletes of messages the ring did not hold, empty for a delete
+    private final LruCache<Integer, Optional<Message>> earlyChanges;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private MessageRepository messageRepository;
+
+    /**
+     * @param capacity number of messages kept, rounded up to a power of two
+     */
+    public RecentFeed(@Value("${app.feed.recent.capacity:1024}") int capacity) {
+        if (capacity < 1 || capacity > 1 << 30){
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(Math.max(1, size));
+        this.mask = slots.length() - 1;
+        this.earlyChanges = new LruCache<>(slots.length(), 0);
+        for (int i = 0; i < STRIPES; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Autowired
+    public void setMessageRepository(MessageRepository messageRepository){
+        this.messageRepository = messageRepository;
+    }
+
+    /**
+     * Fills the ring without a descending scan, which H2 can only answer by reading the whole table: the messages 
+     * above the highest messageId minus a span are read upwards along the primary key, and the span doubles until it 
+     * holds a full ring or reaches the first id. Ids are positive and mostly dense, so this is usually one read.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        Integer newestId = messageRepository.findMaxMessageId();
+        List<Message> newest = List.of();
+        for (long span = slots.length(); newestId != null; span *= 2){
+            long afterId = Math.max(0, newestId - span);
+            //the range holds at most span ids, so the page never cuts it short
+            newest = messageRepository.findByMessageIdGreaterThanOrderByMessageIdAsc((int) afterId, 
+                    PageRequest.of(0, (int) Math.min(span, Integer.MAX_VALUE)));
+            if (newest.size() >= slots.length() || afterId == 0){
+                break;
+            }
+        }
+        for (Message message : newest.subList(Math.max(0, newest.size() - slots.length()), newest.size())){
+            append(new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                    message.getTimePostedEpoch()));
+        }
+    }
+
+    /**
+     * @return the maximum number of messages a read can return
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * @param count maximum number of messages to return, at most {@link #getCapacity()}
+     * @return up to {@code count} of the newest messages, oldest first
+     */
+    public List<Message> getRecent(int count) {
+        long end = next.get();
+        long start = Math.max(0, end - Math.min(count, slots.length()));
+        List<Message> messages = new ArrayList<>((int) (end - start));
+        for (long position = end - 1; position >= start; position--){
+            Slot slot = slots.get(index(position));
+            //skip slots that are lapped, not published yet, or hold a deleted message
+            if (slot != null && slot.position == position && slot.message != null){
+                messages.add(slot.message);
+            }
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    @Override
+    public void messageCreated(Message message) {
+        ReentrantLock lock = stripe(message.getMessageId());
+        lock.lock();
+        try {
+            Optional<Message> early = earlyChanges.peek(message.getMessageId());
+            if (early == null){
+                append(message);
+            }else{
+                earlyChanges.invalidate(message.getMessageId());
+                early.ifPresent(this::append);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void messageUpdated(Message oldMessage, Message newMessage) {
+        change(oldMessage.getMessageId(), newMessage);
+    }
+
+    @Override
+    public void messageDeleted(Message message) {
+        change(message.getMessageId(), null);
+    }
+
+    /**
+     * Publishes a message at the next position. The compare-and-set only loses to a writer that lapped the ring while 
+     * this one was between claiming and publishing, whose newer message must win. The position is recorded before 
+     * the slot is published, so the writer that later laps the slot finds it and removes it.
+     */
+    private void append(Message message) {
+        long position = next.getAndIncrement();
+        int index = index(position);
+        Slot slot = new Slot(position, message);
+        positions.put(message.getMessageId(), position);
+        for (Slot current = slots.get(index); current == null || current.position < position; current = slots.get(index)){
+            if (slots.compareAndSet(index, current, slot)){
+                if (current != null && current.message != null){
+                    positions.remove(current.message.getMessageId(), current.position);
+                }
+                return;
+            }
+        }
+        positions.remove(message.getMessageId(), position);
+    }
+
+    /**
+     * Swaps the message in the slot that holds messageId, or remembers the change if the ring does not hold it. A 
+     * failed compare-and-set means a writer lapped the slot, so the message is no longer in the ring.
+     */
+    private void change(int messageId, Message replacement) {
+        ReentrantLock lock = stripe(messageId);
+        lock.lock();
+        try {
+            Long position = positions.get(messageId);
+            if (position == null){
+                earlyChanges.put(messageId, Optional.ofNullable(replacement));
+                return;
+            }
+            int index = index(position);
+            Slot slot = slots.get(index);
+            if (slot != null && slot.position == position
+                    && slots.compareAndSet(index, slot, new Slot(position, replacement)) && replacement == null){
+                positions.remove(messageId, position);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(int messageId) {
+        return stripes[Math.floorMod(messageId, STRIPES)];
+    }
+
+    private int index(long position) {
+        return (int) position & mask;
+    }
+
+    private static final class Slot {
+
+        final long position;
+        final Message message;
+
+        Slot(long position, Message message) {
+            this.position = position;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageListener;
+
+/**
+ * Every message posted in the last app.messages.time-window.seconds, sorted by timePostedEpoch and then messageId,
+ * for the since and until filters of GET /messages and GET /accounts/{accountId}/messages. A range query that starts
+ * inside the window is answered from memory, without a database query: the window is a sorted set over all messages,
+ * plus one per account, so a range is a search in the set of the query and a copy of what lies between its ends, and
+ * a write is a search and an insert or removal in two sets.
+ *
+ * The window holds every message with a time at or after its start, including times in the future, so whether it can
+ * answer a query only depends on the query's since. The start moves forward as writes evict the messages that fell
+ * out of the window, or the oldest ones once it holds app.messages.time-window.max-messages, and a message posted
+ * with a time before the start is left to the database.
+ *
+ * It is filled from the message table once all beans are initialized, before the web server accepts requests, and is
+ * kept current as a {@link MessageListener} after that; the events of one message arrive in the order its writes
+ * committed, so an edit never brings back an older text and a delete is never undone by its own create. Queries
+ * share a read lock, writes take the write lock. Disabled with app.messages.time-window.enabled=false, which sends
+ * every range query to the database.
+ */
+@Order(0)
+@Component
+public class RecentTimeWindow implements MessageListener, SmartInitializingSingleton {
+
+    private static final Comparator<Message> TIME_ORDER = Comparator.comparing(Message::getTimePostedEpoch)
+            .thenComparing(Message::getMessageId);
+
+    private final boolean enabled;
+    private final long windowSeconds;
+    private final int maxMessages;
+    private final NavigableSet<Message> messages = new TreeSet<>(TIME_ORDER);
+    //the same messages by author, an account without messages in the window has no entry
+    private final Map<Integer, NavigableSet<Message>> accounts = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    //every message with a time at or after start is in the window, nothing is covered before the window is filled
+    private long start = Long.MAX_VALUE;
+
+    private MessageRepository messageRepository;
+
+    public RecentTimeWindow(@Value("${app.messages.time-window.enabled:true}") boolean enabled,
+            @Value("${app.messages.time-window.seconds:3600}") long windowSeconds,
+            @Value("${app.messages.time-window.max-messages:100000}") int maxMessages) {
+        this.enabled = enabled;
+        this.windowSeconds = windowSeconds;
+        this.maxMessages = maxMessages;
+    }
+
+    @Autowired
+    public void setMessageRepository(MessageRepository messageRepository){
+        this.messageRepository = messageRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled){
+            return;
+        }
+        long from = now() - windowSeconds;
+        List<Message> loaded = messageRepository.findByTimePostedRange(from, Long.MAX_VALUE);
+        lock.writeLock().lock();
+        try {
+            for (Message message : loaded){
+                add(new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                        message.getTimePostedEpoch()));
+            }
+            start = from;
+            evictOverCapacity();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param since first timePostedEpoch to include
+     * @param until first timePostedEpoch to leave out
+     * @param postedBy only messages of this account, or {@code null} for all
+     * @return the messages in the range in time order, or {@code null} if the range starts before the window
+     */
+    public List<Message> getRange(long since, long until, Integer postedBy) {
+        lock.readLock().lock();
+        try {
+            if (since < start){
+                return null;
+            }
+            NavigableSet<Message> window = postedBy == null ? messages : accounts.get(postedBy);
+            if (window == null || until <= since){
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(window.subSet(first(since), true, first(until), false));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of messages in the window
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void messageCreated(Message message) {
+        if (!enabled || message.getTimePostedEpoch() == null){
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            evictExpired();
+            if (message.getTimePostedEpoch() < start){
+                return;
+            }
+            add(message);
+            evictOverCapacity();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void messageUpdated(Message oldMessage, Message newMessage) {
+        if (!enabled || oldMessage.getTimePostedEpoch() == null){
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            //the sets hold one entry per time and id, so the new text goes in once the old entry is out
+            if (remove(oldMessage)){
+                add(newMessage);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void messageDeleted(Message message) {
+        if (!enabled || message.getTimePostedEpoch() == null){
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(message);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Message message) {
+        messages.add(message);
+        if (message.getPostedBy() != null){
+            accounts.computeIfAbsent(message.getPostedBy(), postedBy -> new TreeSet<>(TIME_ORDER)).add(message);
+        }
+    }
+
+    private boolean remove(Message message) {
+        if (!messages.remove(message)){
+            return false;
+        }
+        NavigableSet<Message> account = message.getPostedBy() == null ? null : accounts.get(message.getPostedBy());
+        if (account != null){
+            account.remove(message);
+            if (account.isEmpty()){
+                accounts.remove(message.getPostedBy());
+            }
+        }
+        return true;
+    }
+
+    private void evictExpired() {
+        long from = now() - windowSeconds;
+        if (from > start){
+            evictBefore(from);
+            start = from;
+        }
+    }
+
+    private void evictOverCapacity() {
+        if (messages.size() <= maxMessages){
+            return;
+        }
+        //evict whole seconds up to the newest message over capacity, so every message at or after the new start stays
+        Iterator<Message> oldest = messages.iterator();
+        Message newestEvicted = oldest.next();
+        for (int over = messages.size() - maxMessages - 1; over > 0; over--){
+            newestEvicted = oldest.next();
+        }
+        if (newestEvicted.getTimePostedEpoch() == Long.MAX_VALUE){
+            return;
+        }
+        start = newestEvicted.getTimePostedEpoch() + 1;
+        evictBefore(start);
+    }
+
+    private void evictBefore(long time) {
+        NavigableSet<Message> evicted = messages.headSet(first(time), false);
+        for (Message message : evicted){
+            NavigableSet<Message> account = accounts.get(message.getPostedBy());
+            if (account != null){
+                account.remove(message);
+                if (account.isEmpty()){
+                    accounts.remove(message.getPostedBy());
+                }
+            }
+        }
+        evicted.clear();
+    }
+
+    /**
+     * @return a key that sorts before every message with a time at or after {@code time} and after every other one
+     */
+    private static Message first(long time) {
+        return new Message(Integer.MIN_VALUE, null, null, time);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
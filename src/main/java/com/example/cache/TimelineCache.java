@@ -0,0 +1,258 @@
+package com.example.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageListener;
+
+/**
+ * Per-account timelines for GET /accounts/{accountId}/messages: the newest app.cache.timeline.window-size messages of
+ * an account, ordered by messageId, for at most app.cache.timeline.max-accounts recently read accounts.
+ *
+ * A timeline is loaded with one query the first time its account is read, and from then on is kept current by the
+ * write path (fan-out on write) instead of being invalidated, so a repeat read does not touch the database. Only
+ * accounts with more messages than the window fall back to the database, and only for the messages older than it,
+ * which are read in keyset pages of the window size.
+ *
+ * Every timeline has its own lock, held while it is loaded and while a write is applied, so a write that commits
+ * while the timeline is being loaded is applied after the load and never lost. Writes are applied by messageId, which
+ * makes a create that the load already saw harmless. The events of one message arrive in the order its writes
+ * committed, so an edit never replaces a newer text and a deleted message is never brought back by its own create.
+ */
+@Order(0)
+@Component
+public class TimelineCache implements MessageListener {
+
+    private final LruCache<Integer, Timeline> timelines;
+    private final int windowSize;
+    private final LongAdder fallbacks = new LongAdder();
+
+    private MessageRepository messageRepository;
+
+    public TimelineCache(@Value("${app.cache.timeline.max-accounts:10000}") int maxAccounts,
+            @Value("${app.cache.timeline.window-size:200}") int windowSize) {
+        this.timelines = new LruCache<>(maxAccounts, 0);
+        this.windowSize = windowSize;
+    }
+
+    @Autowired
+    public void setMessageRepository(MessageRepository messageRepository){
+        this.messageRepository = messageRepository;
+    }
+
+    /**
+     * @return every message of the account in messageId order
+     */
+    public List<Message> getMessages(int accountId) {
+        Timeline timeline = loadedTimeline(accountId);
+        List<Message> window;
+        timeline.lock.lock();
+        try {
+            window = new ArrayList<>(timeline.messages);
+            if (timeline.complete){
+                return window;
+            }
+        } finally {
+            timeline.lock.unlock();
+        }
+        //the account has more messages than the window holds, read the older ones from the database in keyset pages
+        //of the window size, so no single query reads more than that however long the history is
+        fallbacks.increment();
+        int oldestId = window.isEmpty() ? Integer.MAX_VALUE : window.get(0).getMessageId();
+        List<Message> messages = new ArrayList<>();
+        int afterId = 0;
+        while (true){
+            List<Message> page = messageRepository.findByPostedByAndMessageIdGreaterThanOrderByMessageIdAsc(accountId,
+                    afterId, PageRequest.of(0, windowSize));
+            for (Message message : page){
+                if (message.getMessageId() >= oldestId){
+                    messages.addAll(window);
+                    return messages;
+                }
+                messages.add(message);
+            }
+            if (page.size() < windowSize){
+                messages.addAll(window);
+                return messages;
+            }
+            afterId = page.get(page.size() - 1).getMessageId();
+        }
+    }
+
+    /**
+     * Serves a keyset page from the timeline when the window holds every message after {@code afterId}.
+     *
+     * @param max maximum number of messages to return
+     * @return up to {@code max} messages with an id greater than {@code afterId} in messageId order, or {@code null}
+     *      if the page reaches past the window and has to be read from the database
+     */
+    public List<Message> getMessagesAfter(int accountId, int afterId, int max) {
+        Timeline timeline = loadedTimeline(accountId);
+        timeline.lock.lock();
+        try {
+            List<Message> messages = timeline.messages;
+            if (!timeline.complete && (messages.isEmpty() || afterId < messages.get(0).getMessageId())){
+                fallbacks.increment();
+                return null;
+            }
+            int from = timeline.indexOf(afterId);
+            from = from < 0 ? -from - 1 : from + 1;
+            return new ArrayList<>(messages.subList(from, Math.min(messages.size(), from + max)));
+        } finally {
+            timeline.lock.unlock();
+        }
+    }
+
+    @Override
+    public void messageCreated(Message message) {
+        Timeline timeline = timelines.peek(message.getPostedBy());
+        if (timeline == null){
+            return;
+        }
+        timeline.lock.lock();
+        try {
+            if (!timeline.loaded){
+                return;
+            }
+            List<Message> messages = timeline.messages;
+            int index = timeline.indexOf(message.getMessageId());
+            if (index >= 0){
+                messages.set(index, message);
+                return;
+            }
+            index = -index - 1;
+            if (index == 0 && !timeline.complete){
+                //older than the window, reads past the window already get it from the database
+                return;
+            }
+            messages.add(index, message);
+            if (messages.size() > windowSize){
+                messages.remove(0);
+                timeline.complete = false;
+            }
+        } finally {
+            timeline.lock.unlock();
+        }
+    }
+
+    @Override
+    public void messageUpdated(Message oldMessage, Message newMessage) {
+        Timeline timeline = timelines.peek(oldMessage.getPostedBy());
+        if (timeline == null){
+            return;
+        }
+        timeline.lock.lock();
+        try {
+            int index = timeline.indexOf(oldMessage.getMessageId());
+            if (index >= 0){
+                timeline.messages.set(index, newMessage);
+            }
+        } finally {
+            timeline.lock.unlock();
+        }
+    }
+
+    @Override
+    public void messageDeleted(Message message) {
+        Timeline timeline = timelines.peek(message.getPostedBy());
+        if (timeline == null){
+            return;
+        }
+        timeline.lock.lock();
+        try {
+            int index = timeline.indexOf(message.getMessageId());
+            if (index >= 0){
+                timeline.messages.remove(index);
+            }
+        } finally {
+            timeline.lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        return timelines.stats();
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return number of reads that went past a timeline window to the database
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Returns the timeline of an account, registering it before loading so that writes committed from now on are
+     * routed to it, and loading it under its lock so they wait for the load.
+     */
+    private Timeline loadedTimeline(int accountId) {
+        Timeline timeline = timelines.get(accountId);
+        if (timeline == null){
+            timeline = new Timeline();
+            timelines.put(accountId, timeline);
+        }
+        timeline.lock.lock();
+        try {
+            if (!timeline.loaded){
+                List<Message> newest = messageRepository.findByPostedByOrderByMessageIdDesc(accountId,
+                        PageRequest.of(0, windowSize + 1));
+                timeline.complete = newest.size() <= windowSize;
+                for (Message message : newest.subList(0, Math.min(newest.size(), windowSize))){
+                    timeline.messages.add(new Message(message.getMessageId(), message.getPostedBy(),
+                            message.getMessageText(), message.getTimePostedEpoch()));
+                }
+                Collections.reverse(timeline.messages);
+                timeline.loaded = true;
+            }
+        } finally {
+            timeline.lock.unlock();
+        }
+        return timeline;
+    }
+
+    /**
+     * Messages of one account ordered by messageId, guarded by {@link #lock}. Unless {@link #complete}, the window
+     * holds every message of the account from its first entry on, and none before it.
+     */
+    private static final class Timeline {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final List<Message> messages = new ArrayList<>();
+        boolean loaded;
+        boolean complete;
+
+        /**
+         * @return index of the message, or {@code -(insertion point) - 1} if it is not in the window
+         */
+        int indexOf(int messageId) {
+            int low = 0;
+            int high = messages.size() - 1;
+            while (low <= high){
+                int mid = (low + high) >>> 1;
+                int midId = messages.get(mid).getMessageId();
+                if (midId < messageId){
+                    low = mid + 1;
+                }else if (midId > messageId){
+                    high = mid - 1;
+                }else{
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.cache.CacheStats;
+import com.example.cache.MessageCache;
+import com.example.cache.TimelineCache;
+import com.example.exception.ConflictException;
+import com.example.index.AccountIdIndex;
+import com.example.index.BloomFilterStats;
+import com.example.index.MessageTextIndex;
+import com.example.index.UsernameBloomFilter;
+import com.example.index.UsernamePrefixIndex;
+import com.example.jfr.ContinuousRecording;
+import com.example.metrics.MetricsRegistry;
+import com.example.ratelimit.PostingRateLimiter;
+
+/**
+ * Operational endpoints for sizing and diagnosing the in-process caches and indexes. These are not part of the 
+ * public API described in readme.md. Only served by the servlet stack.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+public class AdminController {
+
+    private MessageCache messageCache;
+    private TimelineCache timelineCache;
+    private UsernameBloomFilter usernameBloomFilter;
+    private AccountIdIndex accountIdIndex;
+    private MessageTextIndex messageTextIndex;
+    private UsernamePrefixIndex usernamePrefixIndex;
+    private PostingRateLimiter postingRateLimiter;
+    private MetricsRegistry metricsRegistry;
+    private ContinuousRecording continuousRecording;
+
+    @Autowired
+    public void setMessageCache(MessageCache messageCache){
+        this.messageCache = messageCache;
+    }
+
+    @Autowired
+    public void setTimelineCache(TimelineCache timelineCache){
+        this.timelineCache = timelineCache;
+    }
+
+    @Autowired
+    public void setUsernameBloomFilter(UsernameBloomFilter usernameBloomFilter){
+        this.usernameBloomFilter = usernameBloomFilter;
+    }
+
+    @Autowired
+    public void setPostingRateLimiter(PostingRateLimiter postingRateLimiter){
+        this.postingRateLimiter = postingRateLimiter;
+    }
+
+    @Autowired
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry){
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Autowired
+    public void setContinuousRecording(ContinuousRecording continuousRecording){
+        this.continuousRecording = continuousRecording;
+    }
+
+    @Autowired
+    public void setAccountIdIndex(AccountIdIndex accountIdIndex){
+        this.accountIdIndex = accountIdIndex;
+    }
+
+    @Autowired
+    public void setMessageTextIndex(MessageTextIndex messageTextIndex){
+        this.messageTextIndex = messageTextIndex;
+    }
+
+    @Autowired
+    public void setUsernamePrefixIndex(UsernamePrefixIndex usernamePrefixIndex){
+        this.usernamePrefixIndex = usernamePrefixIndex;
+    }
+
+    /**
+     * Hit, miss, eviction and expiration counters of the single-message cache behind GET /messages/{messageId}.
+     * 
+     * @return ResponseEntity with the current cache statistics
+     */
+    @GetMapping("/admin/caches/messages")
+    public ResponseEntity<CacheStats> getMessageCacheStats(){
+        return ResponseEntity.status(200).body(messageCache.stats());
+    }
+
+    /**
+     * Counters of the per-account timelines behind GET /accounts/{accountId}/messages, including how many reads went 
+     * past a timeline window to the database.
+     * 
+     * @return ResponseEntity with the current cache statistics
+     */
+    @GetMapping("/admin/caches/timelines")
+    public ResponseEntity<Map<String, Object>> getTimelineCacheStats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("accounts", timelineCache.stats());
+        stats.put("windowSize", timelineCache.getWindowSize());
+        stats.put("fallbacks", timelineCache.getFallbacks());
+        return ResponseEntity.status(200).body(stats);
+    }
+
+    /**
+     * Size, expected and observed false-positive rate of the taken-username Bloom filter used by POST /register.
+     * 
+     * @return ResponseEntity with the current filter statistics
+     */
+    @GetMapping("/admin/indexes/usernames")
+    public ResponseEntity<BloomFilterStats> getUsernameFilterStats(){
+        return ResponseEntity.status(200).body(usernameBloomFilter.stats());
+    }
+
+    /**
+     * Number of ids and memory footprint of the account id index used by POST /messages.
+     * 
+     * @return ResponseEntity with the current index size
+     */
+    @GetMapping("/admin/indexes/accounts")
+    public ResponseEntity<Map<String, Object>> getAccountIdIndexStats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", accountIdIndex.size());
+        stats.put("sizeInBytes", accountIdIndex.getSizeInBytes());
+        return ResponseEntity.status(200).body(stats);
+    }
+
+    /**
+     * Number of usernames and memory footprint of the sorted username index used by GET /accounts/search.
+     * 
+     * @return ResponseEntity with the current index size
+     */
+    @GetMapping("/admin/indexes/username-prefixes")
+    public ResponseEntity<Map<String, Object>> getUsernamePrefixIndexStats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int usernames = usernamePrefixIndex.size();
+        long sizeInBytes = usernamePrefixIndex.getSizeInBytes();
+        stats.put("usernames", usernames);
+        stats.put("sizeInBytes", sizeInBytes);
+        stats.put("bytesPerUsername", usernames == 0 ? 0.0 : (double) sizeInBytes / usernames);
+        return ResponseEntity.status(200).body(stats);
+    }
+
+    /**
+     * Number of messages and terms and memory footprint of the message text index used by GET /messages/search.
+     * 
+     * @return ResponseEntity with the current index size
+     */
+    @GetMapping("/admin/indexes/messages")
+    public ResponseEntity<Map<String, Object>> getMessageTextIndexStats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int messages = messageTextIndex.size();
+        long sizeInBytes = messageTextIndex.getSizeInBytes();
+        stats.put("messages", messages);
+        stats.put("terms", messageTextIndex.getTermCount());
+        stats.put("sizeInBytes", sizeInBytes);
+        stats.put("bytesPerMessage", messages == 0 ? 0.0 : (double) sizeInBytes / messages);
+        return ResponseEntity.status(200).body(stats);
+    }
+
+    /**
+     * Number of token buckets held and requests and batch items refused by the rate limit on POST and PATCH /messages.
+     * 
+     * @return ResponseEntity with the current limiter state
+     */
+    @GetMapping("/admin/rate-limits")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buckets", postingRateLimiter.size());
+        stats.put("rejected", postingRateLimiter.getRejected());
+        return ResponseEntity.status(200).body(stats);
+    }
+
+    /**
+     * Latency histograms, in-flight gauges and error counters of every handler and repository method, connection pool 
+     * wait times and Hibernate statement counts, in the Prometheus text format for scraping.
+     * 
+     * @return ResponseEntity with every metric as Prometheus text
+     */
+    @GetMapping(value = "/admin/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public ResponseEntity<String> getMetrics(){
+        return ResponseEntity.status(200).body(metricsRegistry.scrape());
+    }
+
+    /**
+     * Dumps the continuous flight recording as it is now, for opening in JDK Mission Control. The file is written to 
+     * a temporary location, streamed and deleted. If the app was started without app.jfr.recording.enabled, the 
+     * response status is 409. (Conflict)
+     * 
+     * @return ResponseEntity with the .jfr file as an attachment
+     * @throws ConflictException if no continuous recording is running
+     */
+    @GetMapping(value = "/admin/jfr/recording", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> getRecording() throws IOException, ConflictException {
+        Path file = continuousRecording.dump();
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.status(200)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"social-media.jfr\"")
+                .body(body);
+    }
+}
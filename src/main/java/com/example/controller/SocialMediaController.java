@@ -1,11 +1,15 @@
 package com.example.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-
-import javax.security.sasl.AuthenticationException;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,27 +17,47 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.cache.ChangeVersions;
 import com.example.entity.Account;
 import com.example.entity.Message;
 import com.example.exception.ClientErrorException;
 import com.example.exception.ConflictException;
+import com.example.index.AccountStats;
 import com.example.service.AccountService;
+import com.example.service.MessageBatchResult;
+import com.example.service.MessagePage;
 import com.example.service.MessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * You will need to write your own endpoints and handlers for your controller using Spring. The endpoints you will need can be
  * found in readme.md as well as the test cases. You be required to use the @GET/POST/PUT/DELETE/etc Mapping annotations
  * where applicable as well as the @ResponseBody and @PathVariable annotations. You should
  * refer to prior mini-project labs and lecture materials for guidance on how a controller may be built.
+ * 
+ * Serves the servlet stack, the reactive profile serves the same routes from 
+ * com.example.reactive.ReactiveSocialMediaController instead.
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @ComponentScan(basePackages = "com.example.service")
 @RestController
 public class SocialMediaController {
 
+    /**
+     * Response header carrying the opaque cursor of the next page, absent on the last page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private AccountService accountService;
     private MessageService messageService;
+    private ChangeVersions changeVersions;
+    private ObjectWriter messageWriter;
 
     @Autowired
     public void setAccountService(AccountService accountService){
@@ -45,6 +69,16 @@ public class SocialMediaController {
         this.messageService = messageService;
     }
 
+    @Autowired
+    public void setChangeVersions(ChangeVersions changeVersions){
+        this.changeVersions = changeVersions;
+    }
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper){
+        this.messageWriter = objectMapper.writerFor(Message.class);
+    }
+
     /**
      * ## 1: Our API should be able to process new User registrations.
      * 
@@ -59,14 +93,15 @@ public class SocialMediaController {
      * - If the registration is not successful for some other reason, the response status should be 400. (Client error)
      * 
      * @param account the Account object provided by the post request body
-     * @return ResponseEntity with status code and body according to the above
+     * @return future ResponseEntity with status code and body according to the above
      */
     @PostMapping("/register")
-    public ResponseEntity<Account> userRegistration(@RequestBody Account account) throws ClientErrorException, ConflictException {
-        //Attempt registration
-        account = accountService.addNewAccount(account);
-        //successful account creation
-        return ResponseEntity.status(200).body(account);
+    public CompletableFuture<ResponseEntity<Account>> userRegistration(@RequestBody Account account) 
+            throws ClientErrorException, ConflictException {
+        //Attempt registration, the request thread is released while the password is hashed
+        return accountService.addNewAccount(account)
+                //successful account creation
+                .thenApply(created -> ResponseEntity.status(200).body(created));
     }
 
     /**
@@ -81,15 +116,33 @@ public class SocialMediaController {
      * - If the login is not successful, the response status should be 401. (Unauthorized)
      * 
      * @param account the Account object provided by the post request body
-     * @return ResponseEntity with status code and body according to the above
-     * @throws AuthenticationException 
+     * @return future ResponseEntity with status code and body according to the above
      */
     @PostMapping("/login")
-    public ResponseEntity<Account> userLogin(@RequestBody Account account) throws AuthenticationException {
-        //Attempt login
-        account = accountService.loginWithAccount(account);
-        //successful login
-        return ResponseEntity.status(200).body(account);
+    public CompletableFuture<ResponseEntity<Account>> userLogin(@RequestBody Account account) {
+        //Attempt login, the request thread is released while the password is verified
+        return accountService.loginWithAccount(account)
+                //successful login
+                .thenApply(loggedIn -> ResponseEntity.status(200).body(loggedIn));
+    }
+
+    /**
+     * Username autocomplete, GET localhost:8080/accounts/search?prefix=text&limit=N.
+     * 
+     * - The response body should contain a JSON list of up to N usernames that start with prefix, case-sensitive, in 
+     *      sorted order. N defaults to app.accounts.search.default-limit. The response status should be 200, which is 
+     *      the default, also when nothing matches.
+     * - If prefix is empty or N is not between 1 and app.accounts.search.max-limit, the response status should be 
+     *      400. (Client error)
+     * 
+     * @param prefix the start of the usernames to find
+     * @param limit maximum number of usernames N
+     * @return ResponseEntity with status code and body according to the above
+     */
+    @GetMapping("/accounts/search")
+    public ResponseEntity<List<String>> searchUsernames(@RequestParam(required = false) String prefix, 
+            @RequestParam(required = false) Integer limit) throws ClientErrorException {
+        return ResponseEntity.status(200).body(accountService.searchUsernames(prefix, limit));
     }
 
     /**
@@ -116,6 +169,24 @@ public class SocialMediaController {
         return ResponseEntity.status(200).body(message);
     }
 
+    /**
+     * Batch variant of POST localhost:8080/messages for clients that post in bursts.
+     * 
+     * - The request body is a JSON array of messages. Each one is validated like a single post and the valid ones are 
+     *      persisted together in one transaction.
+     * - The response body is an array with one result per message, in request order: status 200 and the message with 
+     *      its messageId, status 400 and the reason it was rejected, or status 429 if its author is over the rate 
+     *      limit. The response status is 200 as long as the batch itself was accepted.
+     * - If the batch is empty or larger than app.messages.batch.max-size, the response status should be 400.
+     * 
+     * @param messages the Message objects provided by the post request body
+     * @return ResponseEntity with status code and body according to the above
+     */
+    @PostMapping("/messages/batch")
+    public ResponseEntity<List<MessageBatchResult>> postNewMessages(@RequestBody List<Message> messages) throws ClientErrorException {
+        return ResponseEntity.status(200).body(messageService.addMessages(messages));
+    }
+
     /** 
      * ## 4: Our API should be able to retrieve all messages.
      * 
@@ -124,12 +195,89 @@ public class SocialMediaController {
      * - The response body should contain a JSON representation of a list containing all messages retrieved from the 
      *      database. It is expected for the list to simply be empty if there are no messages. The response status 
      *      should always be 200, which is the default.
+     * - If the after or limit query parameter is given, a single keyset page is returned instead, in messageId order. 
+     *      The cursor for the next page is in the X-Next-Cursor header, which is absent on the last page. An invalid 
+     *      cursor or limit responds with 400. (Client error)
+     * - If the since or until query parameter is given, only the messages with a timePostedEpoch at or after since 
+     *      and before until are returned, ordered by timePostedEpoch and then messageId. since after until, or either 
+     *      combined with after or limit, responds with 400. (Client error)
      * 
+     * @param after opaque cursor of the previous page
+     * @param limit maximum number of messages in the page
+     * @param since first timePostedEpoch to include
+     * @param until first timePostedEpoch to leave out
      * @return ResponseEntity with status code and body according to the above
      */
     @GetMapping("/messages")
-    public ResponseEntity<List<Message>> getAllMessages(){
-        return ResponseEntity.status(200).body(messageService.getAllMessages());
+    public ResponseEntity<List<Message>> getAllMessages(@RequestParam(required = false) String after, 
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Long since, 
+            @RequestParam(required = false) Long until) throws ClientErrorException {
+        if (since != null || until != null){
+            requireNoPage(after, limit);
+            return ResponseEntity.status(200).body(messageService.getMessagesInTimeRange(since, until));
+        }
+        if (after == null && limit == null){
+            return ResponseEntity.status(200).body(messageService.getAllMessages());
+        }
+        return pageResponse(messageService.getMessagesPage(after, limit));
+    }
+
+    /**
+     * Full-text search over the message texts, GET localhost:8080/messages/search?q=words&limit=N.
+     * 
+     * - The response body should contain a JSON list of the messages whose text holds every word of q, newest first. A 
+     *      word ending in * matches any word starting with it. Matching ignores case and punctuation. The response 
+     *      status should be 200, which is the default, also when nothing matches.
+     * - limit caps the number of messages the same way as for GET localhost:8080/messages.
+     * - If q holds no word or limit is out of range, the response status should be 400. (Client error)
+     * 
+     * @param q words to search for
+     * @param limit maximum number of messages
+     * @return ResponseEntity with status code and body according to the above
+     */
+    @GetMapping("/messages/search")
+    public ResponseEntity<List<Message>> searchMessages(@RequestParam(required = false) String q, 
+            @RequestParam(required = false) Integer limit) throws ClientErrorException {
+        return ResponseEntity.status(200).body(messageService.searchMessages(q, limit));
+    }
+
+    /**
+     * Recent feed variant of GET localhost:8080/messages, selected with the recent query parameter.
+     * 
+     * - The response body contains the newest N messages across all accounts, oldest first, served from memory 
+     *      without touching the database. Edits and deletes are reflected. The response status should be 200, which is 
+     *      the default.
+     * - If N is not between 1 and app.feed.recent.capacity, the response status should be 400. (Client error)
+     * 
+     * @param recent number of newest messages N
+     * @return ResponseEntity with status code and body according to the above
+     */
+    @GetMapping(value = "/messages", params = "recent")
+    public ResponseEntity<List<Message>> getRecentMessages(@RequestParam int recent) throws ClientErrorException {
+        return ResponseEntity.status(200).body(messageService.getRecentMessages(recent));
+    }
+
+    /**
+     * Streaming variant of GET localhost:8080/messages, selected with the request header Accept: application/x-ndjson.
+     * 
+     * - The response body contains every message as newline-delimited JSON, one message per line in messageId order. 
+     *      Messages are written as they are read from the database cursor, so the first line goes out right away and 
+     *      neither the list nor the body is ever held in memory as a whole. The response status should always be 200.
+     * 
+     * @return ResponseEntity with a streaming body according to the above
+     */
+    @GetMapping(value = "/messages", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllMessages(){
+        StreamingResponseBody body = out -> {
+            try {
+                messageService.streamAllMessages(new NdjsonWriter(out)::write);
+            } catch (UncheckedIOException e) {
+                //client went away, unwrap so the async dispatch sees the real failure
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.status(200).contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /** 
@@ -140,12 +288,19 @@ public class SocialMediaController {
      * - The response body should contain a JSON representation of the message identified by the messageId. It is 
      *      expected for the response body to simply be empty if there is no such message. The response status should 
      *      always be 200, which is the default.
+     * - The response carries a strong ETag. A request whose If-None-Match holds the current one is answered 304 
+     *      without a body, before the message is looked up.
      * 
      * @param messageId the messageId provided by the endpoint GET path
-     * @return ResponseEntity with status code and body according to the above
+     * @param request the request, for its If-None-Match header
+     * @return ResponseEntity with status code and body according to the above, {@code null} when not modified
      */
     @GetMapping("/messages/{messageId}")
-    public ResponseEntity<Message> getMessageById(@PathVariable int messageId){
+    public ResponseEntity<Message> getMessageById(@PathVariable int messageId, WebRequest request){
+        //the version is taken before the read, so the body is at least as new as the ETag
+        if (request.checkNotModified(changeVersions.messageETag(messageId))){
+            return null;
+        }
         Message message = messageService.getMessageById(messageId);
         return ResponseEntity.status(200).body(message);
     }
@@ -210,12 +365,114 @@ public class SocialMediaController {
      * - The response body should contain a JSON representation of a list containing all messages posted by a particular 
      *      user, which is retrieved from the database. It is expected for the list to simply be empty if there are no 
      *      messages. The response status should always be 200, which is the default.
+     * - The after and limit query parameters page through the messages the same way as GET localhost:8080/messages.
+     * - The since and until query parameters filter by timePostedEpoch the same way as for GET 
+     *      localhost:8080/messages.
+     * - The response carries a strong ETag that changes with any message of the account, answered 304 the same way 
+     *      as GET localhost:8080/messages/{messageId}.
      * 
      * @param accountId the accountId provided by the endpoint GET path
-     * @return ResponseEntity with status code and body according to the above
+     * @param after opaque cursor of the previous page
+     * @param limit maximum number of messages in the page
+     * @param since first timePostedEpoch to include
+     * @param until first timePostedEpoch to leave out
+     * @param request the request, for its If-None-Match header
+     * @return ResponseEntity with status code and body according to the above, {@code null} when not modified
      */
     @GetMapping("/accounts/{accountId}/messages")
-    public ResponseEntity<List<Message>> getMessagesByAccountId(@PathVariable int accountId){
-        return ResponseEntity.status(200).body(messageService.getAllMessagesByAccountId(accountId));
+    public ResponseEntity<List<Message>> getMessagesByAccountId(@PathVariable int accountId, 
+            @RequestParam(required = false) String after, @RequestParam(required = false) Integer limit, 
+            @RequestParam(required = false) Long since, @RequestParam(required = false) Long until, 
+            WebRequest request) throws ClientErrorException {
+        if (request.checkNotModified(changeVersions.accountETag(accountId))){
+            return null;
+        }
+        if (since != null || until != null){
+            requireNoPage(after, limit);
+            return ResponseEntity.status(200).body(messageService.getMessagesByAccountIdInTimeRange(accountId, since, 
+                    until));
+        }
+        if (after == null && limit == null){
+            return ResponseEntity.status(200).body(messageService.getAllMessagesByAccountId(accountId));
+        }
+        return pageResponse(messageService.getMessagesPageByAccountId(accountId, after, limit));
+    }
+
+    /**
+     * Message statistics of an account, GET localhost:8080/accounts/{accountId}/stats.
+     * 
+     * - The response body should contain a JSON object with the accountId, its messageCount, and the 
+     *      firstPostedEpoch and lastPostedEpoch of its messages. An account without messages, or an accountId that 
+     *      does not exist, has a messageCount of 0 and null times. The response status should always be 200, which 
+     *      is the default.
+     * 
+     * @param accountId the accountId provided by the endpoint GET path
+     * @return ResponseEntity with status code and body according to the above
+     */
+    @GetMapping("/accounts/{accountId}/stats")
+    public ResponseEntity<AccountStats> getAccountStats(@PathVariable int accountId){
+        return ResponseEntity.status(200).body(messageService.getAccountStats(accountId));
+    }
+
+    /**
+     * Top posters leaderboard, GET localhost:8080/accounts/top-posters?limit=N.
+     * 
+     * - The response body should contain a JSON list of the statistics of the N accounts with the most messages, 
+     *      in the format of GET localhost:8080/accounts/{accountId}/stats, most messages first and ties by lowest 
+     *      accountId. Accounts without messages are left out. N defaults to app.messages.page.default-limit. The 
+     *      response status should be 200, which is the default.
+     * - If N is not between 1 and app.messages.page.max-limit, the response status should be 400. (Client error)
+     * 
+     * @param limit maximum number of accounts N
+     * @return ResponseEntity with status code and body according to the above
+     */
+    @GetMapping("/accounts/top-posters")
+    public ResponseEntity<List<AccountStats>> getTopPosters(@RequestParam(required = false) Integer limit) 
+            throws ClientErrorException {
+        return ResponseEntity.status(200).body(messageService.getTopPosters(limit));
+    }
+
+    /**
+     * Time ranges are returned whole, in time order, which keyset pages in messageId order cannot continue.
+     */
+    private static void requireNoPage(String after, Integer limit) throws ClientErrorException {
+        if (after != null || limit != null){
+            throw new ClientErrorException("since and until cannot be combined with after or limit");
+        }
+    }
+
+    private static ResponseEntity<List<Message>> pageResponse(MessagePage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(200);
+        if (page.getNextCursor() != null){
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getMessages());
+    }
+
+    /**
+     * Writes one message per line and flushes after the first one, so the client sees the head of the stream 
+     * immediately and the rest goes out as the servlet buffer fills.
+     */
+    private class NdjsonWriter {
+
+        private final OutputStream out;
+        private boolean flushed;
+
+        NdjsonWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(Message message) {
+            try {
+                out.write(messageWriter.writeValueAsBytes(message));
+                out.write('\n');
+                if (!flushed){
+                    out.flush();
+                    flushed = true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 }
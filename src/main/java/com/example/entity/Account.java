@@ -2,6 +2,9 @@ package com.example.entity;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 /**
  * This is a class that models an Account.
  *
@@ -11,11 +14,14 @@ import javax.persistence.*;
 @Table(name="account")
 public class Account {
     /**
-     * An id for this Account. You should use this as the Entity's ID.
+     * An id for this Account. You should use this as the Entity's ID. Generated from the account_seq sequence, in 
+     * blocks of app.id.allocation-size ids.
      */
     @Column(name="accountId")
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator="account_seq")
+    @GenericGenerator(name="account_seq", strategy="com.example.repository.PooledSequenceGenerator",
+            parameters=@Parameter(name="sequence_name", value="account_seq"))
     private Integer accountId;
     /**
      * A username for this Account (must be unique and not blank)
@@ -0,0 +1,23 @@
+package com.example.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Thrown for every request over the limit, so it skips capturing a stack trace, which would cost more than the 
+     * limiter itself; it is always handled by {@link ExceptionController}.
+     */
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return whole seconds until the request would be admitted, for the Retry-After header
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+    
+}
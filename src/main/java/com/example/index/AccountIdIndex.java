@@ -0,0 +1,73 @@
+package com.example.index;
+
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.repository.AccountRepository;
+
+/**
+ * In-memory set of existing account ids, so posting a message does not need a database query to check its author. 
+ * It is filled from the account table once all beans are initialized, before the web server accepts requests, and 
+ * {@link #add(int)} is called for every account registered after that.
+ * 
+ * A miss is not proof that the account does not exist (it may have been written outside the service, or its id is 
+ * above app.accounts.id-index.max-id), so callers fall back to the database on a miss, and the message foreign key 
+ * stays the backstop for races.
+ */
+@Component
+public class AccountIdIndex implements SmartInitializingSingleton {
+
+    private final IntBitSet accountIds;
+
+    private AccountRepository accountRepository;
+    private TransactionTemplate transactionTemplate;
+
+    public AccountIdIndex(@Value("${app.accounts.id-index.max-id:67108863}") int maxId) {
+        this.accountIds = new IntBitSet(maxId);
+    }
+
+    @Autowired
+    public void setAccountRepository(AccountRepository accountRepository){
+        this.accountRepository = accountRepository;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Integer> ids = accountRepository.streamAllIds()) {
+                ids.forEach(accountIds::add);
+            }
+        });
+    }
+
+    /**
+     * @return true if the account certainly exists, false if it has to be checked in the database
+     */
+    public boolean contains(Integer accountId) {
+        return accountId != null && accountIds.contains(accountId);
+    }
+
+    public void add(int accountId) {
+        accountIds.add(accountId);
+    }
+
+    public int size() {
+        return accountIds.getCardinality();
+    }
+
+    public long getSizeInBytes() {
+        return accountIds.getSizeInBytes();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.index;
+
+/**
+ * Point-in-time message statistics of one account, served as-is by GET /accounts/{accountId}/stats and the top 
+ * posters leaderboard.
+ */
+public class AccountStats {
+
+    private final int accountId;
+    private final long messageCount;
+    private final Long firstPostedEpoch;
+    private final Long lastPostedEpoch;
+
+    public AccountStats(int accountId, long messageCount, Long firstPostedEpoch, Long lastPostedEpoch) {
+        this.accountId = accountId;
+        this.messageCount = messageCount;
+        this.firstPostedEpoch = firstPostedEpoch;
+        this.lastPostedEpoch = lastPostedEpoch;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * @return the earliest timePostedEpoch of the account's messages, or {@code null} if it has none
+     */
+    public Long getFirstPostedEpoch() {
+        return firstPostedEpoch;
+    }
+
+    /**
+     * @return the latest timePostedEpoch of the account's messages, or {@code null} if it has none
+     */
+    public Long getLastPostedEpoch() {
+        return lastPostedEpoch;
+    }
+}
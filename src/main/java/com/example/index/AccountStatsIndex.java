@@ -0,0 +1,231 @@
+package com.example.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageListener;
+
+/**
+ * Message count and first and last timePostedEpoch of every account that has messages, for
+ * GET /accounts/{accountId}/stats and the top posters leaderboard, so neither runs an aggregate query.
+ *
+ * Every account has a {@link LongAdder} of its messages, incremented and decremented without locks, and the earliest
+ * and latest time kept with atomic min and max updates. Creating a message can only widen that range. Deleting the
+ * message at either end narrows it to something only the table knows, so that delete asks the database for the range
+ * of the account again, an index seek on (postedBy, timePostedEpoch), unless it was the account's last message. Those
+ * lookups are rare, and are serialized per account by a small set of striped locks. A message created while the range
+ * is being looked up again may be missed by the lookup and overwritten by it, so every account also counts its
+ * creations, and the lookup is repeated when that count moved; creations are visible to the database before their
+ * listener runs.
+ *
+ * The leaderboard is kept as a ranking of (message count, accountId) in a concurrent skip list, so a request reads
+ * only its first entries instead of walking every account. Each create and delete moves its account in the ranking,
+ * under one of another set of striped locks so the moves of one account take turns: the new rank is added before the
+ * old one is removed, and a reader that meets an account twice keeps the first, higher rank.
+ *
+ * It is filled from the message table once all beans are initialized, before the web server accepts requests, and is
+ * kept current as a {@link MessageListener} after that. Updates only change the text and are ignored.
+ */
+@Order(0)
+@Component
+public class AccountStatsIndex implements MessageListener, SmartInitializingSingleton {
+
+    private static final int STRIPES = 64;
+
+    private static final Comparator<Rank> RANK_ORDER = Comparator.comparingLong((Rank rank) -> rank.messages)
+            .reversed().thenComparingInt(rank -> rank.accountId);
+
+    private final Map<Integer, Counters> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Rank> ranking = new ConcurrentSkipListSet<>(RANK_ORDER);
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantLock[] rankStripes = new ReentrantLock[STRIPES];
+
+    private MessageRepository messageRepository;
+    private TransactionTemplate transactionTemplate;
+
+    public AccountStatsIndex() {
+        for (int i = 0; i < STRIPES; i++){
+            stripes[i] = new ReentrantLock();
+            rankStripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Autowired
+    public void setMessageRepository(MessageRepository messageRepository){
+        this.messageRepository = messageRepository;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> postings = messageRepository.streamAllPostingTimes()) {
+                postings.forEach(row -> add((Integer) row[0], (Long) row[1]));
+            }
+        });
+    }
+
+    /**
+     * @param accountId any account id
+     * @return the statistics of the account, a count of 0 if it has no messages or does not exist
+     */
+    public AccountStats getStats(int accountId) {
+        Counters counters = accounts.get(accountId);
+        return counters == null ? new AccountStats(accountId, 0, null, null) : counters.toStats(accountId);
+    }
+
+    /**
+     * Reads the first {@code limit} accounts of the ranking.
+     *
+     * @param limit maximum number of accounts to return
+     * @return the accounts with the most messages, most first, ties by lowest accountId
+     */
+    public List<AccountStats> getTopPosters(int limit) {
+        List<AccountStats> top = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+        for (Rank rank : ranking){
+            if (top.size() == limit){
+                break;
+            }
+            //an account being moved may be met twice, its first rank is the higher one
+            Counters counters = accounts.get(rank.accountId);
+            if (counters != null && seen.add(rank.accountId)){
+                AccountStats stats = counters.toStats(rank.accountId);
+                top.add(new AccountStats(rank.accountId, rank.messages, stats.getFirstPostedEpoch(),
+                        stats.getLastPostedEpoch()));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return the number of accounts with statistics
+     */
+    public int size() {
+        return accounts.size();
+    }
+
+    @Override
+    public void messageCreated(Message message) {
+        add(message.getPostedBy(), message.getTimePostedEpoch());
+    }
+
+    @Override
+    public void messageDeleted(Message message) {
+        Counters counters = accounts.get(message.getPostedBy());
+        if (counters == null){
+            return;
+        }
+        counters.messages.decrement();
+        rank(message.getPostedBy(), counters, -1);
+        Long time = message.getTimePostedEpoch();
+        if (time != null && (time == counters.first.get() || time == counters.last.get())){
+            refreshRange(message.getPostedBy(), counters);
+        }
+    }
+
+    private void add(Integer accountId, Long time) {
+        if (accountId == null){
+            return;
+        }
+        Counters counters = accounts.computeIfAbsent(accountId, id -> new Counters());
+        //counted before the range is widened, see refreshRange
+        counters.created.increment();
+        counters.messages.increment();
+        rank(accountId, counters, 1);
+        if (time != null){
+            counters.first.accumulateAndGet(time, Math::min);
+            counters.last.accumulateAndGet(time, Math::max);
+        }
+    }
+
+    private void rank(int accountId, Counters counters, int change) {
+        ReentrantLock lock = rankStripes[Math.floorMod(accountId, STRIPES)];
+        lock.lock();
+        try {
+            long old = counters.ranked;
+            counters.ranked = old + change;
+            if (counters.ranked > 0){
+                ranking.add(new Rank(counters.ranked, accountId));
+            }
+            if (old > 0){
+                ranking.remove(new Rank(old, accountId));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refreshRange(int accountId, Counters counters) {
+        ReentrantLock lock = stripes[Math.floorMod(accountId, STRIPES)];
+        lock.lock();
+        try {
+            long created;
+            do {
+                created = counters.created.sum();
+                //an account left without messages has an empty range, no need to ask
+                Object[] range = counters.messages.sum() <= 0 ? new Object[2] 
+                        : messageRepository.findTimePostedRange(accountId).get(0);
+                counters.first.set(range[0] == null ? Long.MAX_VALUE : (Long) range[0]);
+                counters.last.set(range[1] == null ? Long.MIN_VALUE : (Long) range[1]);
+            } while (created != counters.created.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Counters {
+
+        final LongAdder messages = new LongAdder();
+        final LongAdder created = new LongAdder();
+        final AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong last = new AtomicLong(Long.MIN_VALUE);
+        //the message count the account is ranked by, guarded by its rank stripe
+        long ranked;
+
+        AccountStats toStats(int accountId) {
+            long count = Math.max(0, messages.sum());
+            long firstTime = first.get();
+            long lastTime = last.get();
+            if (count == 0 || firstTime > lastTime){
+                return new AccountStats(accountId, count, null, null);
+            }
+            return new AccountStats(accountId, count, firstTime, lastTime);
+        }
+    }
+
+    private static final class Rank {
+
+        final long messages;
+        final int accountId;
+
+        Rank(long messages, int accountId) {
+            this.messages = messages;
+            this.accountId = accountId;
+        }
+    }
+}
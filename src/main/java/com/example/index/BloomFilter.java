@@ -0,0 +1,110 @@
+package com.example.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size Bloom filter over strings. {@link #mightContain(String)} never answers false for a string that was 
+ * {@link #put(String)}, and answers true for an absent string with roughly the configured false-positive rate as long 
+ * as no more than the expected number of strings were put.
+ * 
+ * Bits live in an {@link AtomicLongArray} and are only ever set, so puts and lookups are lock-free and safe to run 
+ * concurrently. Each string is hashed with two seeds and the k probe positions are derived from the two hashes by 
+ * double hashing.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * @param expectedInsertions number of strings the filter is sized for
+     * @param falsePositiveRate target false-positive rate at expectedInsertions, between 0 and 1
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1){
+            throw new IllegalArgumentException("Invalid Bloom filter size");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+        insertions.increment();
+    }
+
+    /**
+     * @return false if the value was definitely never put, true if it probably was
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public long getSizeInBytes() {
+        return bitCount / 8;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * @return number of puts, including repeated puts of the same value
+     */
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * @return false-positive rate expected at the current number of insertions
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashFunctions * (double) getInsertions() / bitCount), hashFunctions);
+    }
+
+    /**
+     * 64-bit hash of the UTF-8 bytes, a seeded FNV-1a pass finished with the murmur3 avalanche.
+     */
+    private static long hash(String value, long seed) {
+        long h = seed ^ 0xCBF29CE484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
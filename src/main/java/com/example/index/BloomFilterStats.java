@@ -0,0 +1,78 @@
+package com.example.index;
+
+/**
+ * Point-in-time size and effectiveness of a {@link BloomFilter}, serialized as-is by the admin endpoints.
+ */
+public class BloomFilterStats {
+
+    private final long bits;
+    private final long sizeInBytes;
+    private final int hashFunctions;
+    private final long insertions;
+    private final double expectedFalsePositiveRate;
+    private final long definitelyAbsent;
+    private final long maybePresent;
+    private final long falsePositives;
+
+    public BloomFilterStats(BloomFilter filter, long definitelyAbsent, long maybePresent, long falsePositives) {
+        this.bits = filter.getBitCount();
+        this.sizeInBytes = filter.getSizeInBytes();
+        this.hashFunctions = filter.getHashFunctions();
+        this.insertions = filter.getInsertions();
+        this.expectedFalsePositiveRate = filter.getExpectedFalsePositiveRate();
+        this.definitelyAbsent = definitelyAbsent;
+        this.maybePresent = maybePresent;
+        this.falsePositives = falsePositives;
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    public long getInsertions() {
+        return insertions;
+    }
+
+    /**
+     * @return false-positive rate the filter should have at its current number of insertions
+     */
+    public double getExpectedFalsePositiveRate() {
+        return expectedFalsePositiveRate;
+    }
+
+    /**
+     * @return lookups answered without a database query
+     */
+    public long getDefinitelyAbsent() {
+        return definitelyAbsent;
+    }
+
+    /**
+     * @return lookups that had to be confirmed by a database query
+     */
+    public long getMaybePresent() {
+        return maybePresent;
+    }
+
+    /**
+     * @return confirmations that found the value absent after all
+     */
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    /**
+     * @return measured false-positive share of the lookups that went to the database
+     */
+    public double getObservedFalsePositiveRate() {
+        return maybePresent == 0 ? 0.0 : (double) falsePositives / maybePresent;
+    }
+}
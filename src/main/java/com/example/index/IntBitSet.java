@@ -0,0 +1,79 @@
+package com.example.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A growable set of non-negative ints below a fixed ceiling, one bit per possible value.
+ * 
+ * {@link #contains(int)} is lock-free and allocation-free: it reads one word of the current array. Adds are rare and 
+ * take a lock, which also covers growing the array, so a bit can never be lost to a concurrent copy.
+ */
+public class IntBitSet {
+
+    private final int maxValue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile AtomicLongArray words = new AtomicLongArray(1);
+    private volatile int cardinality;
+
+    /**
+     * @param maxValue values above this are never stored, so the set uses at most maxValue / 8 bytes
+     */
+    public IntBitSet(int maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * @return true if the value was added, false if it was already present or is outside 0..maxValue
+     */
+    public boolean add(int value) {
+        if (value < 0 || value > maxValue){
+            return false;
+        }
+        int word = value >>> 6;
+        long mask = 1L << value;
+        lock.lock();
+        try {
+            AtomicLongArray current = words;
+            if (word >= current.length()){
+                current = grow(current, word);
+            }
+            long bits = current.get(word);
+            if ((bits & mask) != 0){
+                return false;
+            }
+            current.set(word, bits | mask);
+            cardinality++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value < 0){
+            return false;
+        }
+        AtomicLongArray current = words;
+        int word = value >>> 6;
+        return word < current.length() && (current.get(word) & (1L << value)) != 0;
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public long getSizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private AtomicLongArray grow(AtomicLongArray current, int word) {
+        int length = Math.max(word + 1, (int) Math.min((maxValue >>> 6) + 1, (long) current.length() * 2));
+        AtomicLongArray grown = new AtomicLongArray(length);
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        words = grown;
+        return grown;
+    }
+}
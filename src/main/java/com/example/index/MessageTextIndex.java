@@ -0,0 +1,326 @@
+package com.example.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageListener;
+
+/**
+ * Inverted index of message texts for GET /messages/search: every term maps to the {@link PostingList} of the
+ * messages that contain it. Texts are split into terms at every character that is not a letter or a digit, and terms
+ * are lower-cased.
+ *
+ * A query is a list of words that must all match. A word ending in {@code *} matches every term that starts with it.
+ * Matches are ranked by recency, newest messageId first. Only the posting lists of the query's terms are decoded, and
+ * they are intersected shortest first, so a query costs in proportion to how common its terms are, not to the number
+ * of messages.
+ *
+ * It is filled from the message table once all beans are initialized, before the web server accepts requests, and is
+ * kept current as a {@link MessageListener} after that. An edit removes the terms of the old text, which is the text
+ * indexed, because the events of one message arrive in the order its writes committed. The index also keeps the set
+ * of messageIds it holds, and ignores edits and deletes of messages it never indexed, like those of a message created
+ * while it was being filled, so neither can leave terms behind or miscount the messages. Queries share a read lock,
+ * writes take the write lock.
+ */
+@Order(0)
+@Component
+public class MessageTextIndex implements MessageListener, SmartInitializingSingleton {
+
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    //messageIds are handed out in sequence, so a bit per id up to the highest is compact
+    private final BitSet indexed = new BitSet();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int messageCount;
+
+    private MessageRepository messageRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public void setMessageRepository(MessageRepository messageRepository){
+        this.messageRepository = messageRepository;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> texts = messageRepository.streamAllTexts()) {
+                texts.forEach(row -> add((Integer) row[0], (String) row[1]));
+            }
+        });
+        trimToSize();
+    }
+
+    /**
+     * @param query words that must all match, a trailing {@code *} makes a word a prefix
+     * @param limit maximum number of messageIds to return
+     * @return messageIds of the matching messages, newest first
+     */
+    public int[] search(String query, int limit) {
+        List<String> words = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")){
+            boolean prefix = word.endsWith("*");
+            List<String> wordTerms = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+            for (int i = 0; i < wordTerms.size(); i++){
+                words.add(wordTerms.get(i));
+                //only the last term of a word like "spring-bo*" is a prefix
+                prefixes.add(prefix && i == wordTerms.size() - 1);
+            }
+        }
+        if (words.isEmpty()){
+            return new int[0];
+        }
+        List<int[]> matches = new ArrayList<>(words.size());
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < words.size(); i++){
+                int[] ids = prefixes.get(i) ? prefixMatches(words.get(i)) : exactMatches(words.get(i));
+                if (ids.length == 0){
+                    return ids;
+                }
+                matches.add(ids);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(ids -> ids.length));
+        int[] result = matches.get(0);
+        for (int i = 1; i < matches.size() && result.length > 0; i++){
+            result = intersect(result, matches.get(i));
+        }
+        int size = Math.min(limit, result.length);
+        int[] newest = new int[size];
+        for (int i = 0; i < size; i++){
+            newest[i] = result[result.length - 1 - i];
+        }
+        return newest;
+    }
+
+    /**
+     * @return the number of messages indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return messageCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct terms
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return approximate heap size of the terms, their posting lists and the tree holding them
+     */
+    public long getSizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Map.Entry<String, PostingList> term : terms.entrySet()){
+                //tree entry, then the String with its byte array
+                bytes += 40 + 24 + 16 + term.getKey().length() + term.getValue().getSizeInBytes();
+            }
+            return bytes + indexed.size() / 8;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void messageCreated(Message message) {
+        add(message.getMessageId(), message.getMessageText());
+    }
+
+    @Override
+    public void messageUpdated(Message oldMessage, Message newMessage) {
+        Set<String> oldTerms = new HashSet<>(tokenize(oldMessage.getMessageText()));
+        Set<String> newTerms = new HashSet<>(tokenize(newMessage.getMessageText()));
+        lock.writeLock().lock();
+        try {
+            if (!isIndexed(oldMessage.getMessageId())){
+                return;
+            }
+            for (String term : oldTerms){
+                if (!newTerms.contains(term)){
+                    removePosting(term, oldMessage.getMessageId());
+                }
+            }
+            for (String term : newTerms){
+                if (!oldTerms.contains(term)){
+                    terms.computeIfAbsent(term, t -> new PostingList()).add(newMessage.getMessageId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void messageDeleted(Message message) {
+        Set<String> messageTerms = new HashSet<>(tokenize(message.getMessageText()));
+        lock.writeLock().lock();
+        try {
+            if (!isIndexed(message.getMessageId())){
+                return;
+            }
+            for (String term : messageTerms){
+                removePosting(term, message.getMessageId());
+            }
+            indexed.clear(message.getMessageId());
+            messageCount--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Splits a text into lower-case terms at every character that is not a letter or a digit.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null){
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++){
+            boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (termChar && start < 0){
+                start = i;
+            }else if (!termChar && start >= 0){
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    void trimToSize() {
+        lock.writeLock().lock();
+        try {
+            terms.values().forEach(PostingList::trimToSize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(int messageId, String text) {
+        Set<String> messageTerms = new HashSet<>(tokenize(text));
+        lock.writeLock().lock();
+        try {
+            if (messageId < 0 || isIndexed(messageId)){
+                return;
+            }
+            for (String term : messageTerms){
+                terms.computeIfAbsent(term, t -> new PostingList()).add(messageId);
+            }
+            indexed.set(messageId);
+            messageCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isIndexed(int messageId) {
+        return messageId >= 0 && indexed.get(messageId);
+    }
+
+    private void removePosting(String term, int messageId) {
+        PostingList postings = terms.get(term);
+        if (postings == null){
+            return;
+        }
+        postings.remove(messageId);
+        if (postings.size() == 0){
+            terms.remove(term);
+        }
+    }
+
+    private int[] exactMatches(String term) {
+        PostingList postings = terms.get(term);
+        return postings == null ? new int[0] : postings.toArray();
+    }
+
+    private int[] prefixMatches(String prefix) {
+        Map<String, PostingList> matching = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matching.size() == 1){
+            return matching.values().iterator().next().toArray();
+        }
+        int total = 0;
+        List<int[]> lists = new ArrayList<>(matching.size());
+        for (PostingList postings : matching.values()){
+            int[] ids = postings.toArray();
+            lists.add(ids);
+            total += ids.length;
+        }
+        //union of the lists: concatenate, sort, drop the ids of messages holding more than one of the terms
+        int[] all = new int[total];
+        int position = 0;
+        for (int[] ids : lists){
+            System.arraycopy(ids, 0, all, position, ids.length);
+            position += ids.length;
+        }
+        Arrays.sort(all);
+        int size = 0;
+        for (int i = 0; i < all.length; i++){
+            if (size == 0 || all[size - 1] != all[i]){
+                all[size++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, size);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length){
+            if (a[i] < b[j]){
+                i++;
+            }else if (a[i] > b[j]){
+                j++;
+            }else{
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.index;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of messageIds for one term of the {@link MessageTextIndex}, compressed as the gaps between consecutive
+ * ids in variable-length bytes: 7 bits per byte, the high bit set on every byte but the last of a gap. Ids mostly
+ * arrive in ascending order, and an id above the current last one is simply appended.
+ *
+ * An id below the last one, and the removal of an id, cannot be applied in place, so they wait in two small int
+ * arrays. Reads apply them on the fly, and once {@value #MAX_PENDING} are waiting the list is rewritten with them
+ * applied. Callers never add an id that is already in the list. Removing an id that is not in the list is a no-op,
+ * checked against the compressed ids before a removal is recorded, since a recorded removal of an absent id would
+ * make {@link #size()} undercount. Listeners can run out of order and remove a message before it was indexed.
+ *
+ * Not thread-safe, the index guards it.
+ */
+final class PostingList {
+
+    static final int MAX_PENDING = 64;
+    private static final int[] EMPTY = new int[0];
+
+    private byte[] data = new byte[4];
+    private int length;
+    private int count;
+    private int last;
+
+    private int[] added = EMPTY;
+    private int addedCount;
+    private int[] removed = EMPTY;
+    private int removedCount;
+
+    void add(int id) {
+        int index = indexOf(removed, removedCount, id);
+        if (index >= 0){
+            //removed and added back, it is still in the compressed ids
+            removed[index] = removed[--removedCount];
+            return;
+        }
+        if (count == 0 || id > last){
+            append(id);
+            return;
+        }
+        if (addedCount == added.length){
+            added = Arrays.copyOf(added, Math.max(4, addedCount * 2));
+        }
+        added[addedCount++] = id;
+        compactIfNeeded();
+    }
+
+    void remove(int id) {
+        int index = indexOf(added, addedCount, id);
+        if (index >= 0){
+            added[index] = added[--addedCount];
+            return;
+        }
+        if (!containsCompressed(id) || indexOf(removed, removedCount, id) >= 0){
+            //never in the list, or already removed
+            return;
+        }
+        if (removedCount == removed.length){
+            removed = Arrays.copyOf(removed, Math.max(4, removedCount * 2));
+        }
+        removed[removedCount++] = id;
+        compactIfNeeded();
+    }
+
+    /**
+     * @return the number of ids in the list
+     */
+    int size() {
+        return count + addedCount - removedCount;
+    }
+
+    /**
+     * @return every id in ascending order
+     */
+    int[] toArray() {
+        int[] ids = new int[count];
+        int position = 0;
+        int id = 0;
+        for (int i = 0; i < count; i++){
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                gap |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += gap;
+            ids[i] = id;
+        }
+        if (removedCount == 0 && addedCount == 0){
+            return ids;
+        }
+        int[] sortedRemoved = Arrays.copyOf(removed, removedCount);
+        Arrays.sort(sortedRemoved);
+        int[] sortedAdded = Arrays.copyOf(added, addedCount);
+        Arrays.sort(sortedAdded);
+        int[] merged = new int[size()];
+        int size = 0;
+        int a = 0;
+        int r = 0;
+        for (int i = 0; i < ids.length; i++){
+            while (r < sortedRemoved.length && sortedRemoved[r] < ids[i]){
+                r++;
+            }
+            if (r < sortedRemoved.length && sortedRemoved[r] == ids[i]){
+                continue;
+            }
+            while (a < sortedAdded.length && sortedAdded[a] < ids[i]){
+                merged[size++] = sortedAdded[a++];
+            }
+            merged[size++] = ids[i];
+        }
+        while (a < sortedAdded.length){
+            merged[size++] = sortedAdded[a++];
+        }
+        return merged;
+    }
+
+    /**
+     * Gives back the room reserved for appends, for lists that were just filled in bulk.
+     */
+    void trimToSize() {
+        if (data.length > length + 4){
+            data = Arrays.copyOf(data, Math.max(4, length));
+        }
+    }
+
+    /**
+     * @return approximate heap size of the list, including its arrays
+     */
+    long getSizeInBytes() {
+        //object header and fields, then the three arrays with their headers
+        return 48 + (16 + data.length) + (16 + 4L * added.length) + (16 + 4L * removed.length);
+    }
+
+    private void append(int id) {
+        int gap = count == 0 ? id : id - last;
+        if (length + 5 > data.length){
+            data = Arrays.copyOf(data, Math.max(length + 5, data.length + (data.length >> 1)));
+        }
+        while ((gap & ~0x7f) != 0){
+            data[length++] = (byte) ((gap & 0x7f) | 0x80);
+            gap >>>= 7;
+        }
+        data[length++] = (byte) gap;
+        last = id;
+        count++;
+    }
+
+    private void compactIfNeeded() {
+        if (addedCount + removedCount < MAX_PENDING){
+            return;
+        }
+        int[] ids = toArray();
+        data = new byte[Math.max(4, ids.length * 2)];
+        length = 0;
+        count = 0;
+        added = EMPTY;
+        addedCount = 0;
+        removed = EMPTY;
+        removedCount = 0;
+        for (int id : ids){
+            append(id);
+        }
+        data = Arrays.copyOf(data, Math.max(4, length));
+    }
+
+    /**
+     * Decodes the compressed ids up to id, which is cheap next to the rewrite a removal eventually costs.
+     */
+    private boolean containsCompressed(int id) {
+        if (count == 0 || id > last){
+            return false;
+        }
+        int position = 0;
+        int current = 0;
+        for (int i = 0; i < count; i++){
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                gap |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += gap;
+            if (current >= id){
+                return current == id;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(int[] ids, int size, int id) {
+        for (int i = 0; i < size; i++){
+            if (ids[i] == id){
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.index;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.repository.AccountRepository;
+
+/**
+ * Bloom filter of taken usernames, so registration can skip the existence query for a username that is definitely 
+ * free. It is filled from the account table once all beans are initialized, before the web server accepts requests, 
+ * and {@link #add(String)} is called for every account registered after that.
+ * 
+ * The filter only ever answers "definitely free" or "maybe taken", and the unique constraint on account.username 
+ * stays the final arbiter. Sized by app.bloom.username.expected-insertions and app.bloom.username.false-positive-rate.
+ */
+@Component
+public class UsernameBloomFilter implements SmartInitializingSingleton {
+
+    private final BloomFilter filter;
+    private final LongAdder definitelyFree = new LongAdder();
+    private final LongAdder maybeTaken = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    private AccountRepository accountRepository;
+    private TransactionTemplate transactionTemplate;
+
+    public UsernameBloomFilter(@Value("${app.bloom.username.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${app.bloom.username.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    @Autowired
+    public void setAccountRepository(AccountRepository accountRepository){
+        this.accountRepository = accountRepository;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> usernames = accountRepository.streamAllUsernames()) {
+                usernames.forEach(filter::put);
+            }
+        });
+    }
+
+    /**
+     * @return false if no account has this username, true if one might
+     */
+    public boolean mightBeTaken(String username) {
+        if (filter.mightContain(username)){
+            maybeTaken.increment();
+            return true;
+        }
+        definitelyFree.increment();
+        return false;
+    }
+
+    /**
+     * Records that a "maybe taken" answer turned out to be free, for the reported false-positive count.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public void add(String username) {
+        filter.put(username);
+    }
+
+    public BloomFilterStats stats() {
+        return new BloomFilterStats(filter, definitelyFree.sum(), maybeTaken.sum(), falsePositives.sum());
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.repository.AccountRepository;
+
+/**
+ * Sorted index of every username for GET /accounts/search?prefix=, so autocomplete never queries the database. The
+ * usernames matching a prefix are a contiguous run of the sorted order: a binary search finds where it starts, and
+ * the first matches are read from there.
+ *
+ * Usernames are kept as one array of UTF-8 bytes with the start offset of each name, sorted by unsigned byte value,
+ * which for UTF-8 is the same as sorting by code point and keeps a prefix of the string a prefix of the bytes. That
+ * costs the name's bytes plus four bytes per username, instead of a String object and its array per name. The array is
+ * immutable and replaced as a whole: accounts registered since the last rebuild wait in a small sorted set that every
+ * lookup merges in, and once app.accounts.username-index.merge-threshold of them, or 1/64 of the array if that is
+ * more, are waiting they are merged into a new array. Rebuilding the array therefore costs a constant amount of
+ * copying per registration, whatever the number of accounts.
+ *
+ * It is filled from the account table once all beans are initialized, before the web server accepts requests, and
+ * {@link #add(String)} is called for every account registered after that. Matching is case-sensitive, like usernames.
+ */
+@Component
+public class UsernamePrefixIndex implements SmartInitializingSingleton {
+
+    private final int mergeThreshold;
+    private volatile SortedNames names = new SortedNames(new byte[0], new int[] {0});
+    private final NavigableSet<String> recent = new ConcurrentSkipListSet<>(UsernamePrefixIndex::compareUtf8);
+    private final ReentrantLock mergeLock = new ReentrantLock();
+
+    private AccountRepository accountRepository;
+    private TransactionTemplate transactionTemplate;
+
+    public UsernamePrefixIndex(@Value("${app.accounts.username-index.merge-threshold:1024}") int mergeThreshold) {
+        this.mergeThreshold = mergeThreshold;
+    }
+
+    @Autowired
+    public void setAccountRepository(AccountRepository accountRepository){
+        this.accountRepository = accountRepository;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<byte[]> all = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> usernames = accountRepository.streamAllUsernames()) {
+                usernames.forEach(username -> all.add(username.getBytes(StandardCharsets.UTF_8)));
+            }
+        });
+        all.sort(Arrays::compareUnsigned);
+        names = SortedNames.of(all);
+    }
+
+    /**
+     * @param username the username of an account just registered
+     */
+    public void add(String username) {
+        recent.add(username);
+        if (recent.size() >= Math.max(mergeThreshold, names.size() >> 6) && mergeLock.tryLock()){
+            try {
+                merge();
+            } finally {
+                mergeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param prefix the start of the usernames to find, not empty
+     * @param limit maximum number of usernames to return
+     * @return up to {@code limit} usernames starting with prefix, in sorted order
+     */
+    public List<String> search(String prefix, int limit) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        while (true){
+            //a merge publishes the new array before it empties the set, so if the array is still the same after the
+            //set was read, no name moved from the set to the array in between
+            SortedNames snapshot = names;
+            List<String> matches = search(snapshot, prefix, key, limit);
+            if (snapshot == names){
+                return matches;
+            }
+        }
+    }
+
+    private List<String> search(SortedNames snapshot, String prefix, byte[] key, int limit) {
+        int from = snapshot.lowerBound(key);
+        Iterator<String> pending = recent.tailSet(prefix, true).iterator();
+        String next = nextMatch(pending, prefix);
+
+        List<String> matches = new ArrayList<>(Math.min(limit, 16));
+        while (matches.size() < limit){
+            String stored = from < snapshot.size() && snapshot.startsWith(from, key) ? snapshot.get(from) : null;
+            if (stored == null && next == null){
+                break;
+            }
+            //a name in both the array and the set is taken once
+            int order = stored == null ? 1 : next == null ? -1 : compareUtf8(stored, next);
+            if (order <= 0){
+                matches.add(stored);
+                from++;
+            }
+            if (order >= 0){
+                if (order > 0){
+                    matches.add(next);
+                }
+                next = nextMatch(pending, prefix);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the number of usernames indexed
+     */
+    public int size() {
+        return names.size() + recent.size();
+    }
+
+    /**
+     * @return approximate heap size of the sorted array, and of the usernames waiting to be merged into it
+     */
+    public long getSizeInBytes() {
+        SortedNames snapshot = names;
+        long bytes = 16 + snapshot.data.length + 16 + 4L * snapshot.offsets.length;
+        for (String username : recent){
+            //skip list node, String and its array
+            bytes += 32 + 24 + 16 + username.length();
+        }
+        return bytes;
+    }
+
+    private void merge() {
+        List<String> merged = new ArrayList<>(recent);
+        if (merged.isEmpty()){
+            return;
+        }
+        SortedNames snapshot = names;
+        List<byte[]> added = new ArrayList<>(merged.size());
+        int length = snapshot.data.length;
+        for (String username : merged){
+            byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+            added.add(bytes);
+            length += bytes.length;
+        }
+        byte[] data = new byte[length];
+        int[] offsets = new int[snapshot.size() + added.size() + 1];
+        int count = 0;
+        int position = 0;
+        int from = 0;
+        for (byte[] name : added){
+            //copy the run of stored names below the new one in one go, then the new name
+            int to = snapshot.lowerBound(name);
+            int runStart = snapshot.offsets[from];
+            int runLength = snapshot.offsets[to] - runStart;
+            System.arraycopy(snapshot.data, runStart, data, position, runLength);
+            for (int i = from; i < to; i++){
+                offsets[count++] = position + snapshot.offsets[i] - runStart;
+            }
+            position += runLength;
+            from = to;
+            if (from < snapshot.size() && snapshot.compareTo(from, name) == 0){
+                //registered concurrently with the startup load, already stored
+                continue;
+            }
+            offsets[count++] = position;
+            System.arraycopy(name, 0, data, position, name.length);
+            position += name.length;
+        }
+        int runStart = snapshot.offsets[from];
+        int runLength = snapshot.data.length - runStart;
+        System.arraycopy(snapshot.data, runStart, data, position, runLength);
+        for (int i = from; i < snapshot.size(); i++){
+            offsets[count++] = position + snapshot.offsets[i] - runStart;
+        }
+        position += runLength;
+        offsets[count] = position;
+        names = new SortedNames(position == data.length ? data : Arrays.copyOf(data, position),
+                count + 1 == offsets.length ? offsets : Arrays.copyOf(offsets, count + 1));
+        recent.removeAll(merged);
+    }
+
+    private static String nextMatch(Iterator<String> pending, String prefix) {
+        if (pending.hasNext()){
+            String username = pending.next();
+            if (username.startsWith(prefix)){
+                return username;
+            }
+        }
+        return null;
+    }
+
+    private static int compareUtf8(String a, String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Immutable sorted usernames: the UTF-8 bytes of all names back to back, and where each name starts, with one
+     * extra offset for the end of the last.
+     */
+    private static final class SortedNames {
+
+        final byte[] data;
+        final int[] offsets;
+
+        SortedNames(byte[] data, int[] offsets) {
+            this.data = data;
+            this.offsets = offsets;
+        }
+
+        static SortedNames of(List<byte[]> sorted) {
+            int length = 0;
+            for (byte[] name : sorted){
+                length += name.length;
+            }
+            byte[] data = new byte[length];
+            int[] offsets = new int[sorted.size() + 1];
+            int position = 0;
+            for (int i = 0; i < sorted.size(); i++){
+                offsets[i] = position;
+                System.arraycopy(sorted.get(i), 0, data, position, sorted.get(i).length);
+                position += sorted.get(i).length;
+            }
+            offsets[sorted.size()] = position;
+            return new SortedNames(data, offsets);
+        }
+
+        int size() {
+            return offsets.length - 1;
+        }
+
+        String get(int index) {
+            return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+        }
+
+        int compareTo(int index, byte[] key) {
+            return Arrays.compareUnsigned(data, offsets[index], offsets[index + 1], key, 0, key.length);
+        }
+
+        boolean startsWith(int index, byte[] prefix) {
+            return offsets[index + 1] - offsets[index] >= prefix.length
+                    && Arrays.equals(data, offsets[index], offsets[index] + prefix.length, prefix, 0, prefix.length);
+        }
+
+        /**
+         * @return the index of the first name not below key, binary search
+         */
+        int lowerBound(byte[] key) {
+            int low = 0;
+            int high = size();
+            while (low < high){
+                int middle = (low + high) >>> 1;
+                if (compareTo(middle, key) < 0){
+                    low = middle + 1;
+                }else{
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
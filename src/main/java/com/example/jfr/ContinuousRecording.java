@@ -0,0 +1,92 @@
+package com.example.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.ConflictException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Optional always-on flight recording, started with the app when app.jfr.recording.enabled is true.
+ *
+ * The recording uses the JDK settings named by app.jfr.recording.settings (default or profile), so GC, lock and
+ * thread events land next to the app's own request, service and repository events. It is a bounded ring: data older
+ * than app.jfr.recording.max-age, or past app.jfr.recording.max-size on disk, is dropped. The app's events are
+ * recorded only when they take at least app.jfr.recording.threshold, which keeps a busy server's recording focused on
+ * the slow requests.
+ */
+@Component
+public class ContinuousRecording {
+
+    private final boolean enabled;
+    private final String settings;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+    private final Duration threshold;
+    private Recording recording;
+
+    public ContinuousRecording(@Value("${app.jfr.recording.enabled:false}") boolean enabled,
+            @Value("${app.jfr.recording.settings:default}") String settings,
+            @Value("${app.jfr.recording.max-age:15m}") Duration maxAge,
+            @Value("${app.jfr.recording.max-size-mb:100}") long maxSizeMb,
+            @Value("${app.jfr.recording.threshold:0ms}") Duration threshold) {
+        this.enabled = enabled;
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        if (!enabled){
+            return;
+        }
+        recording = new Recording(Configuration.getConfiguration(settings));
+        recording.setName("social-media-continuous");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        recording.enable(HttpRequestEvent.class).withThreshold(threshold);
+        recording.enable(ServiceCallEvent.class).withThreshold(threshold);
+        recording.enable(RepositoryCallEvent.class).withThreshold(threshold);
+        recording.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null){
+            recording.close();
+        }
+    }
+
+    public boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Writes what the ring currently holds to a new temporary file, which the caller must delete.
+     *
+     * @return the .jfr file
+     * @throws ConflictException if no recording is running
+     */
+    public Path dump() throws IOException, ConflictException {
+        if (recording == null){
+            throw new ConflictException("No continuous recording is running, start the app with app.jfr.recording.enabled=true");
+        }
+        Path file = Files.createTempFile("social-media-", ".jfr");
+        recording.dump(file);
+        return file;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.jfr;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.service.MessagePage;
+
+/**
+ * Derives event fields from the arguments and results of the calls being recorded.
+ */
+final class EventFields {
+
+    private EventFields() {
+    }
+
+    /**
+     * @return number of rows a call returned or changed, or -1 if that is not known
+     */
+    static int rowsOf(Object result) {
+        if (result == null){
+            return 0;
+        }
+        if (result instanceof Collection){
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof MessagePage){
+            return ((MessagePage) result).getMessages().size();
+        }
+        if (result instanceof Optional){
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Integer){
+            return (Integer) result;
+        }
+        if (result instanceof Boolean){
+            return (Boolean) result ? 1 : 0;
+        }
+        if (result instanceof Message || result instanceof Account){
+            return 1;
+        }
+        return -1;
+    }
+
+    static String outcomeOf(Throwable error) {
+        if (error == null){
+            return "success";
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null 
+                ? error.getCause() : error;
+        return cause.getClass().getSimpleName();
+    }
+
+    static int idOf(Integer id) {
+        return id != null ? id : -1;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One request handled by a controller method, from the first dispatch until the response is complete.
+ */
+@Name("com.example.HttpRequest")
+@Label("HTTP Request")
+@Category({"Social Media", "HTTP"})
+@StackTrace(false)
+public class HttpRequestEvent extends jdk.jfr.Event {
+
+    @Label("Handler")
+    String handler;
+
+    @Label("Method")
+    String method;
+
+    @Label("URI Pattern")
+    String uri;
+
+    @Label("Message Id")
+    @Description("messageId path variable, or -1")
+    int messageId = -1;
+
+    @Label("Account Id")
+    @Description("accountId path variable, or -1")
+    int accountId = -1;
+
+    @Label("Status")
+    int status;
+
+    @Label("Outcome")
+    @Description("success, or the status or exception of a failed request")
+    String outcome;
+}
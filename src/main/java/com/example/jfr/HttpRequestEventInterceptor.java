@@ -0,0 +1,69 @@
+package com.example.jfr;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Emits an {@link HttpRequestEvent} for every request handled by a controller method. Like the metrics interceptor,
+ * a request that completes on an async dispatch is recorded when that dispatch completes.
+ */
+public class HttpRequestEventInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String EVENT_ATTRIBUTE = HttpRequestEventInterceptor.class.getName() + ".event";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(EVENT_ATTRIBUTE) != null){
+            return true;
+        }
+        HttpRequestEvent event = new HttpRequestEvent();
+        if (event.isEnabled()){
+            event.begin();
+            request.setAttribute(EVENT_ATTRIBUTE, event);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object attribute = request.getAttribute(EVENT_ATTRIBUTE);
+        if (!(attribute instanceof HttpRequestEvent)){
+            return;
+        }
+        //leave a marker so a later error dispatch does not record the request again
+        request.setAttribute(EVENT_ATTRIBUTE, Boolean.TRUE);
+        HttpRequestEvent event = (HttpRequestEvent) attribute;
+        event.end();
+        if (!event.shouldCommit()){
+            return;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        event.handler = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        event.method = request.getMethod();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        event.uri = pattern != null ? pattern.toString() : request.getRequestURI();
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables instanceof Map){
+            event.messageId = parseId(((Map<?, ?>) variables).get("messageId"));
+            event.accountId = parseId(((Map<?, ?>) variables).get("accountId"));
+        }
+        event.status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        event.outcome = ex != null ? ex.getClass().getSimpleName() 
+                : event.status >= 400 ? "status " + event.status : "success";
+        event.commit();
+    }
+
+    private static int parseId(Object value) {
+        try {
+            return value != null ? Integer.parseInt(value.toString()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
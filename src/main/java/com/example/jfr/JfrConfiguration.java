@@ -0,0 +1,37 @@
+package com.example.jfr;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Hooks the flight recorder events into the request handling and the repositories. The service events come from
+ * {@link ServiceEventAspect}.
+ */
+@Configuration
+public class JfrConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HttpRequestEventInterceptor());
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryEventBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport){
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory -> 
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> 
+                                    proxyFactory.addAdvice(0, new RepositoryEventInterceptor(
+                                            repositoryInformation.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to a repository method, including the transaction it runs in.
+ */
+@Name("com.example.RepositoryCall")
+@Label("Repository Call")
+@Category({"Social Media", "Repository"})
+@StackTrace(false)
+public class RepositoryCallEvent extends jdk.jfr.Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Id")
+    @Description("first argument if it is an id, or -1")
+    int id = -1;
+
+    @Label("Rows")
+    @Description("rows returned or changed, or -1 if not known, e.g. for a stream")
+    int rows = -1;
+
+    @Label("Outcome")
+    @Description("success, or the exception the call failed with")
+    String outcome;
+}
@@ -0,0 +1,46 @@
+package com.example.jfr;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Emits a {@link RepositoryCallEvent} for every call to one repository, outermost in the repository proxy so the 
+ * event spans the transaction the call runs in.
+ */
+public class RepositoryEventInterceptor implements MethodInterceptor {
+
+    private final String repository;
+
+    public RepositoryEventInterceptor(Class<?> repositoryInterface) {
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()){
+            return invocation.proceed();
+        }
+        event.begin();
+        Object result = null;
+        Throwable error = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()){
+                Object[] args = invocation.getArguments();
+                event.repository = repository;
+                event.method = invocation.getMethod().getName();
+                event.id = args.length > 0 && args[0] instanceof Integer ? (Integer) args[0] : -1;
+                event.rows = error == null ? EventFields.rowsOf(result) : -1;
+                event.outcome = EventFields.outcomeOf(error);
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to a MessageService or AccountService method. Calls returning a CompletableFuture end when the future
+ * completes, on the thread that completed it.
+ */
+@Name("com.example.ServiceCall")
+@Label("Service Call")
+@Category({"Social Media", "Service"})
+@StackTrace(false)
+public class ServiceCallEvent extends jdk.jfr.Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Method")
+    String method;
+
+    @Label("Message Id")
+    @Description("messageId argument or result, or -1")
+    int messageId = -1;
+
+    @Label("Account Id")
+    @Description("accountId or postedBy argument or result, or -1")
+    int accountId = -1;
+
+    @Label("Rows")
+    @Description("messages or rows returned or changed, or -1 if not applicable")
+    int rows = -1;
+
+    @Label("Outcome")
+    @Description("success, or the exception the call failed with")
+    String outcome;
+}
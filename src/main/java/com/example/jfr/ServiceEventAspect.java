@@ -0,0 +1,88 @@
+package com.example.jfr;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+
+/**
+ * Emits a {@link ServiceCallEvent} for every public MessageService and AccountService method. Ids are taken from
+ * arguments named messageId or accountId, from Message and Account arguments, and from a returned Message or
+ * Account. When no recording has the event enabled, the call goes straight through.
+ */
+@Aspect
+@Component
+public class ServiceEventAspect {
+
+    @Around("(execution(public * com.example.service.MessageService.*(..)) "
+            + "|| execution(public * com.example.service.AccountService.*(..))) && !execution(* set*(..))")
+    public Object recordServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        ServiceCallEvent event = new ServiceCallEvent();
+        if (!event.isEnabled()){
+            return joinPoint.proceed();
+        }
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        event.service = signature.getDeclaringType().getSimpleName();
+        event.method = signature.getName();
+        readArguments(event, signature.getParameterNames(), joinPoint.getArgs());
+        event.begin();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            end(event, null, e);
+            throw e;
+        }
+        if (result instanceof CompletableFuture){
+            ((CompletableFuture<?>) result).whenComplete((value, error) -> end(event, value, error));
+        }else{
+            end(event, result, null);
+        }
+        return result;
+    }
+
+    private static void readArguments(ServiceCallEvent event, String[] names, Object[] args) {
+        for (int i = 0; i < args.length; i++){
+            Object arg = args[i];
+            if (arg instanceof Integer && names != null && "messageId".equals(names[i])){
+                event.messageId = (Integer) arg;
+            }else if (arg instanceof Integer && names != null && "accountId".equals(names[i])){
+                event.accountId = (Integer) arg;
+            }else if (arg instanceof Message){
+                readMessage(event, (Message) arg);
+            }else if (arg instanceof Account && ((Account) arg).getAccountId() != null){
+                event.accountId = ((Account) arg).getAccountId();
+            }
+        }
+    }
+
+    private static void readMessage(ServiceCallEvent event, Message message) {
+        if (event.messageId < 0){
+            event.messageId = EventFields.idOf(message.getMessageId());
+        }
+        if (event.accountId < 0){
+            event.accountId = EventFields.idOf(message.getPostedBy());
+        }
+    }
+
+    private static void end(ServiceCallEvent event, Object result, Throwable error) {
+        event.end();
+        if (!event.shouldCommit()){
+            return;
+        }
+        if (result instanceof Message){
+            readMessage(event, (Message) result);
+        }else if (result instanceof Account && event.accountId < 0){
+            event.accountId = EventFields.idOf(((Account) result).getAccountId());
+        }
+        event.rows = error == null ? EventFields.rowsOf(result) : -1;
+        event.outcome = EventFields.outcomeOf(error);
+        event.commit();
+    }
+}
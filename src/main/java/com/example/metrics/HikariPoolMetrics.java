@@ -0,0 +1,66 @@
+package com.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Connection pool metrics fed by Hikari: how long threads waited to get a connection, how long they held it, how
+ * often they gave up waiting, and the pool occupancy at scrape time.
+ */
+public class HikariPoolMetrics implements MetricsTrackerFactory, IMetricsTracker {
+
+    private final LatencyTimer acquireTimer = new LatencyTimer();
+    private final LatencyTimer usageTimer = new LatencyTimer();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile String poolName = "";
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquireTimer.record(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageTimer.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * @return the pool occupancy, or {@code null} before the pool has started
+     */
+    PoolStats getPoolStats() {
+        return poolStats;
+    }
+
+    LatencyTimer getAcquireTimer() {
+        return acquireTimer;
+    }
+
+    LatencyTimer getUsageTimer() {
+        return usageTimer;
+    }
+
+    long getTimeouts() {
+        return timeouts.sum();
+    }
+}
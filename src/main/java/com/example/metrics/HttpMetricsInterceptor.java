@@ -0,0 +1,60 @@
+package com.example.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times every request handled by a controller method, from the first dispatch until the response is complete.
+ *
+ * A handler returning a CompletableFuture or a StreamingResponseBody finishes on an async dispatch: the first dispatch
+ * only calls {@link #afterConcurrentHandlingStarted}, and the timer started by it keeps running until 
+ * {@link #afterCompletion} of the async dispatch. Responses with a 4xx or 5xx status, including those written by 
+ * ExceptionController, are counted as errors by status.
+ */
+public class HttpMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String METRICS_ATTRIBUTE = HttpMetricsInterceptor.class.getName() + ".metrics";
+    private static final String START_ATTRIBUTE = HttpMetricsInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry metricsRegistry;
+
+    public HttpMetricsInterceptor(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(START_ATTRIBUTE) != null){
+            return true;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        OperationMetrics metrics = metricsRegistry.httpRequest(handlerMethod.getMethod(),
+                key -> labels(request, handlerMethod));
+        request.setAttribute(METRICS_ATTRIBUTE, metrics);
+        request.setAttribute(START_ATTRIBUTE, metrics.start());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        OperationMetrics metrics = (OperationMetrics) request.getAttribute(METRICS_ATTRIBUTE);
+        Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        if (metrics == null || start == null){
+            return;
+        }
+        request.removeAttribute(METRICS_ATTRIBUTE);
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        metrics.stop(start, status >= 400 ? Integer.toString(status) : null);
+    }
+
+    private static String labels(HttpServletRequest request, HandlerMethod handlerMethod) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return "handler=\"" + handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName()
+                + "\",method=\"" + request.getMethod()
+                + "\",uri=\"" + MetricsRegistry.escape(pattern != null ? pattern.toString() : request.getRequestURI()) + "\"";
+    }
+}
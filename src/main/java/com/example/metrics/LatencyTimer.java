@@ -0,0 +1,67 @@
+package com.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed bucket bounds, the shape Prometheus expects: a count per bucket, a total count and a
+ * total time. Recording is a scan over {@value #BUCKET_COUNT} bounds and two or three {@link LongAdder} increments, so
+ * it neither allocates nor contends between threads.
+ */
+public class LatencyTimer {
+
+    /** Upper bounds of the buckets in seconds, the last bucket (+Inf) is implied. */
+    static final double[] BUCKET_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final int BUCKET_COUNT = 16;
+    private static final long[] BUCKET_NANOS = new long[BUCKET_COUNT];
+
+    static {
+        for (int i = 0; i < BUCKET_COUNT; i++){
+            BUCKET_NANOS[i] = (long) (BUCKET_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyTimer() {
+        for (int i = 0; i < buckets.length; i++){
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_COUNT && nanos > BUCKET_NANOS[bucket]){
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * @return cumulative counts, one per bound of {@link #BUCKET_SECONDS} followed by the count of all values
+     */
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[buckets.length];
+        long sum = 0;
+        for (int i = 0; i < buckets.length; i++){
+            sum += buckets[i].sum();
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalSeconds() {
+        return totalNanos.sum() / 1e9;
+    }
+}
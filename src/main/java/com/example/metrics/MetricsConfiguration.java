@@ -0,0 +1,53 @@
+package com.example.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Hooks the {@link MetricsRegistry} into the request handling, the repositories and the connection pool.
+ */
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry){
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HttpMetricsInterceptor(metricsRegistry));
+    }
+
+    /**
+     * Instruments repositories before they are created and the pool before it is started. Static, and with a lazy
+     * handle on the registry, so registering it does not instantiate anything early.
+     */
+    @Bean
+    public static BeanPostProcessor metricsBeanPostProcessor(ObjectProvider<MetricsRegistry> metricsRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport){
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory -> 
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> 
+                                    proxyFactory.addAdvice(0, new RepositoryMetricsInterceptor(metricsRegistry.getObject(),
+                                            repositoryInformation.getRepositoryInterface()))));
+                }else if (bean instanceof HikariDataSource){
+                    ((HikariDataSource) bean).setMetricsTrackerFactory(metricsRegistry.getObject().getHikariPoolMetrics());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+import org.springframework.stereotype.Component;
+
+import com.example.repository.StatementCounter;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Holds every metric of the app and renders them in the Prometheus text exposition format for GET /admin/metrics.
+ *
+ * Operations are registered on first use under a key the caller already has at hand (a handler method, a repository
+ * method), so the hot path is one {@link ConcurrentHashMap} lookup followed by {@link OperationMetrics#start()} and
+ * {@link OperationMetrics#stop(long, String)}.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final Map<Object, OperationMetrics> httpRequests = new ConcurrentHashMap<>();
+    private final Map<Object, OperationMetrics> repositoryInvocations = new ConcurrentHashMap<>();
+    private final HikariPoolMetrics hikariPoolMetrics = new HikariPoolMetrics();
+    private final WriteBehindMetrics writeBehindMetrics = new WriteBehindMetrics();
+
+    /**
+     * @param key identifies the handler
+     * @param labels creates the labels of a handler seen for the first time
+     */
+    public OperationMetrics httpRequest(Object key, Function<Object, String> labels) {
+        OperationMetrics metrics = httpRequests.get(key);
+        return metrics != null ? metrics : httpRequests.computeIfAbsent(key, k -> new OperationMetrics(labels.apply(k)));
+    }
+
+    /**
+     * @param key identifies the repository method
+     * @param labels creates the labels of a method seen for the first time
+     */
+    public OperationMetrics repositoryInvocation(Object key, Function<Object, String> labels) {
+        OperationMetrics metrics = repositoryInvocations.get(key);
+        return metrics != null ? metrics
+                : repositoryInvocations.computeIfAbsent(key, k -> new OperationMetrics(labels.apply(k)));
+    }
+
+    public HikariPoolMetrics getHikariPoolMetrics() {
+        return hikariPoolMetrics;
+    }
+
+    public WriteBehindMetrics getWriteBehindMetrics() {
+        return writeBehindMetrics;
+    }
+
+    /**
+     * @return every metric in the Prometheus text exposition format, version 0.0.4
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        writeOperations(out, "http_server_requests", "handler method", httpRequests, "status");
+        writeOperations(out, "repository_invocations", "repository method", repositoryInvocations, "exception");
+
+        String pool = "pool=\"" + escape(hikariPoolMetrics.getPoolName()) + "\"";
+        writeHistogram(out, "hikari_connection_acquire_seconds", "Time spent waiting for a pooled connection.",
+                List.of(pool), List.of(hikariPoolMetrics.getAcquireTimer()));
+        writeHistogram(out, "hikari_connection_usage_seconds", "Time a pooled connection was held.",
+                List.of(pool), List.of(hikariPoolMetrics.getUsageTimer()));
+        writeHeader(out, "hikari_connection_timeouts_total", "counter", "Connection requests that timed out.");
+        writeSample(out, "hikari_connection_timeouts_total", pool, hikariPoolMetrics.getTimeouts());
+        PoolStats poolStats = hikariPoolMetrics.getPoolStats();
+        if (poolStats != null){
+            writeHeader(out, "hikari_connections", "gauge", "Pooled connections by state, and threads waiting for one.");
+            writeSample(out, "hikari_connections", pool + ",state=\"active\"", poolStats.getActiveConnections());
+            writeSample(out, "hikari_connections", pool + ",state=\"idle\"", poolStats.getIdleConnections());
+            writeSample(out, "hikari_connections", pool + ",state=\"pending\"", poolStats.getPendingThreads());
+            writeSample(out, "hikari_connections", pool + ",state=\"max\"", poolStats.getMaxConnections());
+        }
+
+        writeHeader(out, "hibernate_statements_total", "counter", "SQL statements prepared by Hibernate.");
+        for (String kind : StatementCounter.KINDS){
+            writeSample(out, "hibernate_statements_total", "kind=\"" + kind + "\"", StatementCounter.total(kind));
+        }
+
+        IntSupplier queueDepth = writeBehindMetrics.getQueueDepth();
+        if (queueDepth != null){
+            writeHeader(out, "message_write_behind_queue_depth", "gauge", "Posted messages not yet committed, queued or in the batch being written.");
+            writeSample(out, "message_write_behind_queue_depth", "", queueDepth.getAsInt());
+            writeHistogram(out, "message_write_behind_flush_seconds", "Time to write and commit a batch of messages.",
+                    List.of(""), List.of(writeBehindMetrics.getFlushTimer()));
+            writeHeader(out, "message_write_behind_flushed_total", "counter", "Queued messages written.");
+            writeSample(out, "message_write_behind_flushed_total", "", writeBehindMetrics.getFlushed());
+            writeHeader(out, "message_write_behind_dropped_total", "counter", "Queued messages the database refused.");
+            writeSample(out, "message_write_behind_dropped_total", "", writeBehindMetrics.getDropped());
+        }
+        return out.toString();
+    }
+
+    private static void writeOperations(StringBuilder out, String name, String what, Map<Object, OperationMetrics> map,
+            String errorLabel) {
+        List<OperationMetrics> operations = new ArrayList<>(map.values());
+        operations.sort(Comparator.comparing(OperationMetrics::getLabels));
+        List<String> labels = new ArrayList<>();
+        List<LatencyTimer> timers = new ArrayList<>();
+        for (OperationMetrics operation : operations){
+            labels.add(operation.getLabels());
+            timers.add(operation.getTimer());
+        }
+        writeHistogram(out, name + "_seconds", "Latency per " + what + ".", labels, timers);
+
+        writeHeader(out, name + "_in_flight", "gauge", "Calls in progress per " + what + ".");
+        for (OperationMetrics operation : operations){
+            writeSample(out, name + "_in_flight", operation.getLabels(), operation.getInFlight());
+        }
+
+        writeHeader(out, name + "_errors_total", "counter", "Failed calls per " + what + " and " + errorLabel + ".");
+        for (OperationMetrics operation : operations){
+            for (Map.Entry<String, LongAdder> error : new TreeMap<>(operation.getErrors()).entrySet()){
+                writeSample(out, name + "_errors_total", operation.getLabels() + "," + errorLabel + "=\""
+                        + escape(error.getKey()) + "\"", error.getValue().sum());
+            }
+        }
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String help, List<String> labels,
+            List<LatencyTimer> timers) {
+        writeHeader(out, name, "histogram", help);
+        for (int i = 0; i < timers.size(); i++){
+            LatencyTimer timer = timers.get(i);
+            String prefix = labels.get(i).isEmpty() ? "" : labels.get(i) + ",";
+            long[] cumulative = timer.cumulativeCounts();
+            for (int bucket = 0; bucket < cumulative.length; bucket++){
+                String bound = bucket < LatencyTimer.BUCKET_SECONDS.length
+                        ? Double.toString(LatencyTimer.BUCKET_SECONDS[bucket]) : "+Inf";
+                writeSample(out, name + "_bucket", prefix + "le=\"" + bound + "\"", cumulative[bucket]);
+            }
+            out.append(name).append("_sum").append(labels.get(i).isEmpty() ? "" : "{" + labels.get(i) + "}")
+                    .append(' ').append(timer.getTotalSeconds()).append('\n');
+            writeSample(out, name + "_count", labels.get(i), timer.getCount());
+        }
+    }
+
+    private static void writeHeader(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()){
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Escapes a label value as the text format requires.
+     */
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
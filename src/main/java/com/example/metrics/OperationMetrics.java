@@ -0,0 +1,58 @@
+package com.example.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, in-flight count and errors of one instrumented operation, a handler method or a repository method.
+ */
+public class OperationMetrics {
+
+    private final String labels;
+    private final LatencyTimer timer = new LatencyTimer();
+    private final LongAdder inFlight = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    /**
+     * @param labels Prometheus label pairs identifying the operation, without braces
+     */
+    OperationMetrics(String labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * @return start time to hand to {@link #stop(long, String)}
+     */
+    public long start() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * @param error what went wrong, e.g. a status code or exception name, {@code null} on success
+     */
+    public void stop(long startNanos, String error) {
+        timer.record(System.nanoTime() - startNanos);
+        inFlight.decrement();
+        if (error != null){
+            errors.computeIfAbsent(error, key -> new LongAdder()).increment();
+        }
+    }
+
+    String getLabels() {
+        return labels;
+    }
+
+    LatencyTimer getTimer() {
+        return timer;
+    }
+
+    long getInFlight() {
+        return inFlight.sum();
+    }
+
+    Map<String, LongAdder> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.metrics;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Times every call to one repository, outermost in the repository proxy so the time includes the transaction the 
+ * call runs in. Methods inherited from JpaRepository are shared by all repositories, so they are told apart by the 
+ * repository interface.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    private final MetricsRegistry metricsRegistry;
+    private final Class<?> repositoryInterface;
+    private final Map<Method, OperationMetrics> methods = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsInterceptor(MetricsRegistry metricsRegistry, Class<?> repositoryInterface) {
+        this.metricsRegistry = metricsRegistry;
+        this.repositoryInterface = repositoryInterface;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        OperationMetrics metrics = methods.computeIfAbsent(invocation.getMethod(),
+                method -> metricsRegistry.repositoryInvocation(List.of(repositoryInterface, method), key -> 
+                        "repository=\"" + repositoryInterface.getSimpleName() + "\",method=\"" + method.getName() + "\""));
+        long start = metrics.start();
+        try {
+            Object result = invocation.proceed();
+            metrics.stop(start, null);
+            return result;
+        } catch (Throwable e) {
+            metrics.stop(start, e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+}
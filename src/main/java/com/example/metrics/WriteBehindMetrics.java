@@ -0,0 +1,56 @@
+package com.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics of the write-behind message queue fed by {@link com.example.service.MessageWriteBehind}: how many messages
+ * wait to be written at scrape time, how long each batch took to commit, and how many messages were written or
+ * dropped.
+ */
+public class WriteBehindMetrics {
+
+    private final LatencyTimer flushTimer = new LatencyTimer();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile IntSupplier queueDepth;
+
+    /**
+     * Called once the queue exists, until then nothing is reported.
+     */
+    public void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * @param nanos time from the start of the transaction to its commit
+     * @param messages messages written by the batch
+     */
+    public void recordFlush(long nanos, int messages) {
+        flushTimer.record(nanos);
+        flushed.add(messages);
+    }
+
+    public void recordDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * @return the queue depth, or {@code null} when write-behind is not enabled
+     */
+    IntSupplier getQueueDepth() {
+        return queueDepth;
+    }
+
+    LatencyTimer getFlushTimer() {
+        return flushTimer;
+    }
+
+    long getFlushed() {
+        return flushed.sum();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.TooManyRequestsException;
+
+/**
+ * Token buckets that limit how fast one account can post and edit messages: app.ratelimit.permits-per-second on
+ * average, with bursts of up to app.ratelimit.burst. A request over the limit is refused before it writes to the
+ * database, and answered 429 with a Retry-After header. Off unless app.ratelimit.enabled is set, since it changes
+ * what the API answers to a client posting quickly.
+ *
+ * Each bucket is a single {@link AtomicLong}, the time at which it would be empty again if nothing else was taken
+ * (the generic cell rate form of a token bucket), so taking a token is one read of the clock and one compare-and-set,
+ * without a lock. Buckets live in a {@link ConcurrentHashMap}, whose reads take no lock and whose writes lock a
+ * single bin, so requests of different accounts do not contend. A bucket whose time is in the past is full and
+ * holds no information, and a background thread removes those every app.ratelimit.idle-sweep-ms, so the table only
+ * holds recently active accounts. A request that took a token from a bucket while it was being removed only loses
+ * that token, from a bucket that was full anyway. Callers only take tokens for accounts that exist, and the table
+ * never grows past app.ratelimit.max-buckets: when it is full, idle buckets are swept right away, and if none are
+ * idle a new key is let through without a bucket rather than refusing an account that has not posted yet.
+ *
+ * Keys are longs, {@link #accountKey(int)} for the bucket of an author, which leaves room for buckets of other kinds
+ * of clients later.
+ */
+@Component
+public class PostingRateLimiter {
+
+    private final boolean enabled;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long sweepMillis;
+    private final int maxBuckets;
+    private final Map<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private ScheduledExecutorService sweeper;
+
+    public PostingRateLimiter(@Value("${app.ratelimit.enabled:false}") boolean enabled,
+            @Value("${app.ratelimit.permits-per-second:10}") double permitsPerSecond,
+            @Value("${app.ratelimit.burst:20}") int burst,
+            @Value("${app.ratelimit.idle-sweep-ms:60000}") long sweepMillis,
+            @Value("${app.ratelimit.max-buckets:100000}") int maxBuckets) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxBuckets < 1){
+            throw new IllegalArgumentException(
+                    "permits-per-second must be positive, burst at least 1 and max-buckets positive");
+        }
+        this.enabled = enabled;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        //a full bucket may run this far ahead of the clock and still admit a request
+        this.burstNanos = intervalNanos * (burst - 1);
+        this.sweepMillis = sweepMillis;
+        this.maxBuckets = maxBuckets;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled){
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::removeIdleBuckets, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null){
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of key.
+     *
+     * @throws TooManyRequestsException if the bucket is empty
+     */
+    public void acquire(long key) throws TooManyRequestsException {
+        long waitNanos = take(key);
+        if (waitNanos > 0){
+            throw new TooManyRequestsException("Too many requests, try again later.",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of key if it holds one, for callers that refuse part of a request rather than
+     * all of it.
+     *
+     * @return true if a token was taken
+     */
+    public boolean tryAcquire(long key) {
+        return take(key) == 0;
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until the bucket holds one again
+     */
+    private long take(long key) {
+        if (!enabled){
+            return 0;
+        }
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null){
+            if (buckets.size() >= maxBuckets){
+                removeIdleBuckets();
+                if (buckets.size() >= maxBuckets){
+                    return 0;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true){
+            long emptyAt = bucket.get();
+            long from = emptyAt - now > 0 ? emptyAt : now;
+            if (from - now > burstNanos){
+                rejected.increment();
+                return from - burstNanos - now;
+            }
+            if (bucket.compareAndSet(emptyAt, from + intervalNanos)){
+                return 0;
+            }
+        }
+    }
+
+    public static long accountKey(int accountId) {
+        return accountId & 0xffffffffL;
+    }
+
+    /**
+     * @return the number of buckets currently held
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * @return requests refused since startup
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    void removeIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
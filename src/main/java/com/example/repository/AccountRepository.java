@@ -1,9 +1,16 @@
 package com.example.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.entity.Account;
 
@@ -12,6 +19,36 @@ public interface AccountRepository extends JpaRepository<Account, Integer> {
 
     public boolean existsByUsername(String username);
 
-    public Optional<Account> findByUsernameAndPassword(String username, String password);
+    public Optional<Account> findByUsername(String username);
+
+    /**
+     * Forward-only cursor over every username, for building in-memory indexes at startup. Must be consumed inside a 
+     * transaction and closed.
+     */
+    @Query("select a.username from Account a")
+    public Stream<String> streamAllUsernames();
+
+    /**
+     * Forward-only cursor over every account id, see {@link #streamAllUsernames()}.
+     */
+    @Query("select a.accountId from Account a")
+    public Stream<Integer> streamAllIds();
+
+    /**
+     * Replaces the stored password of an account with a single UPDATE statement.
+     * 
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("update Account a set a.password = :password where a.accountId = :accountId")
+    public int updatePassword(@Param("accountId") int accountId, @Param("password") String password);
+
+    /**
+     * @param accountIds candidate account ids
+     * @return the subset of accountIds that exist, in one IN query
+     */
+    @Query("select a.accountId from Account a where a.accountId in :accountIds")
+    public List<Integer> findExistingIds(@Param("accountIds") Collection<Integer> accountIds);
 
 }
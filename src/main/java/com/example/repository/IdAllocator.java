@@ -0,0 +1,41 @@
+package com.example.repository;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out the id of an entity before it is inserted, for writers that insert rows without the persistence context.
+ * The id comes from the generator Hibernate itself uses for the entity, the {@link PooledSequenceGenerator} of its
+ * sequence, so both kinds of insert draw from the same current block and the same sequence SQL of the dialect, and a
+ * change to how blocks are allocated applies to both.
+ *
+ * A stateless session is opened per call; it only takes a connection when the block is used up and the generator
+ * goes to the sequence.
+ */
+@Component
+public class IdAllocator {
+
+    private SessionFactoryImplementor sessionFactory;
+
+    @Autowired
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory){
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    /**
+     * @return the next id of the entity's generator
+     */
+    public int nextId(Class<?> entityType) {
+        IdentifierGenerator generator = sessionFactory.getMetamodel().entityPersister(entityType)
+                .getIdentifierGenerator();
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return ((Number) generator.generate((SharedSessionContractImplementor) session, null)).intValue();
+        }
+    }
+}
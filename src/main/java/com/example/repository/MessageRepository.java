@@ -1,9 +1,21 @@
 package com.example.repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.entity.Message;
 
@@ -12,4 +24,115 @@ public interface MessageRepository extends JpaRepository<Message, Integer> {
 
     public List<Message> findByPostedBy(int postedBy);
 
+    /**
+     * Keyset page over the whole message table: the first {@code pageable.getPageSize()} messages with an id greater
+     * than {@code messageId}. Walks the primary key index, so the cost of a page does not depend on how deep it is.
+     */
+    public List<Message> findByMessageIdGreaterThanOrderByMessageIdAsc(int messageId, Pageable pageable);
+
+    /**
+     * @return the highest messageId, read from the end of the primary key index, or {@code null} if there are none
+     */
+    @Query("select max(m.messageId) from Message m")
+    public Integer findMaxMessageId();
+
+    /**
+     * Keyset page over the messages of one account, see {@link #findByMessageIdGreaterThanOrderByMessageIdAsc}. Walks 
+     * the (postedBy, messageId) index; the order names postedBy as well, which is the same order for a single account 
+     * but lets H2 see that the index is already sorted and stop after the page.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy and m.messageId > :messageId "
+            + "order by m.postedBy, m.messageId")
+    public List<Message> findByPostedByAndMessageIdGreaterThanOrderByMessageIdAsc(@Param("postedBy") int postedBy, 
+            @Param("messageId") int messageId, Pageable pageable);
+
+    /**
+     * Forward-only cursor over every message in messageId order. Rows are fetched from the driver in chunks and the 
+     * entities are loaded read-only, so the caller must consume the stream inside a transaction and close it.
+     */
+    @Query("select m from Message m order by m.messageId")
+    @org.springframework.data.jpa.repository.QueryHints({
+            @QueryHint(name = QueryHints.HINT_FETCH_SIZE, value = "256"),
+            @QueryHint(name = QueryHints.HINT_READONLY, value = "true")
+    })
+    public Stream<Message> streamAll();
+
+    /**
+     * Forward-only cursor over the messageId and messageText of every message, see {@link #streamAll()}. Rows are 
+     * returned as arrays rather than entities, so nothing accumulates in the persistence context.
+     */
+    @Query("select m.messageId, m.messageText from Message m order by m.messageId")
+    @org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.HINT_FETCH_SIZE, value = "256"))
+    public Stream<Object[]> streamAllTexts();
+
+    /**
+     * Messages posted in a time range, read from the (timePostedEpoch, messageId) index in that order.
+     * 
+     * @param since first timePostedEpoch to include
+     * @param until first timePostedEpoch to leave out
+     */
+    @Query("select m from Message m where m.timePostedEpoch >= :since and m.timePostedEpoch < :until "
+            + "order by m.timePostedEpoch, m.messageId")
+    public List<Message> findByTimePostedRange(@Param("since") long since, @Param("until") long until);
+
+    /**
+     * Messages of one account posted in a time range, read from the (postedBy, timePostedEpoch) index, see 
+     * {@link #findByTimePostedRange(long, long)}.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy and m.timePostedEpoch >= :since "
+            + "and m.timePostedEpoch < :until order by m.timePostedEpoch, m.messageId")
+    public List<Message> findByPostedByAndTimePostedRange(@Param("postedBy") int postedBy, @Param("since") long since, 
+            @Param("until") long until);
+
+    /**
+     * Forward-only cursor over the postedBy and timePostedEpoch of every message, see {@link #streamAllTexts()}.
+     */
+    @Query("select m.postedBy, m.timePostedEpoch from Message m")
+    @org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.HINT_FETCH_SIZE, value = "256"))
+    public Stream<Object[]> streamAllPostingTimes();
+
+    /**
+     * Earliest and latest timePostedEpoch of one account, both read from the ends of the (postedBy, timePostedEpoch) 
+     * index.
+     * 
+     * @return a single row of the two times, both {@code null} if the account has no messages
+     */
+    @Query("select min(m.timePostedEpoch), max(m.timePostedEpoch) from Message m where m.postedBy = :postedBy")
+    public List<Object[]> findTimePostedRange(@Param("postedBy") int postedBy);
+
+    /**
+     * Newest messages of one account first, used to fill the in-memory timeline window. H2 cannot read an index 
+     * backwards, so it reads the account's entries of the (postedBy, messageId) index and keeps the newest; that 
+     * happens once per timeline load.
+     */
+    public List<Message> findByPostedByOrderByMessageIdDesc(int postedBy, Pageable pageable);
+
+    /**
+     * Reads a message and locks its row until the end of the transaction, so an update or delete in the same 
+     * transaction knows the row it changes, and concurrent changes of the message take turns.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from Message m where m.messageId = :messageId")
+    public Optional<Message> findLockedByMessageId(@Param("messageId") int messageId);
+
+    /**
+     * Replaces the text of a message with a single UPDATE statement, without loading the entity first.
+     * 
+     * @return number of rows updated, 0 if the message does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("update Message m set m.messageText = :messageText where m.messageId = :messageId")
+    public int updateMessageText(@Param("messageId") int messageId, @Param("messageText") String messageText);
+
+    /**
+     * Deletes a message with a single DELETE statement, without loading the entity first.
+     * 
+     * @return number of rows deleted, 0 if the message does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Message m where m.messageId = :messageId")
+    public int deleteByMessageId(@Param("messageId") int messageId);
+
 }
@@ -0,0 +1,120 @@
+package com.example.repository;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence-backed id generator that hands out ids from pre-allocated blocks with the pooled-lo optimizer, so a 
+ * sequence round trip is paid once per block instead of once per insert and JDBC insert batching stays possible.
+ * 
+ * The block size is the sequence increment, read from the Hibernate setting {@value #ALLOCATION_SIZE_SETTING} 
+ * (spring.jpa.properties.app.id.allocation-size). Because data.sql inserts rows with explicit ids, every block at or 
+ * below the highest id present at startup is checked against the table once, and skipped if any of its ids is taken.
+ * 
+ * Writers that insert without the persistence context take their ids from the same instance through 
+ * {@link IdAllocator}.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "app.id.allocation-size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private int allocationSize;
+    private String maxIdSql;
+    private String blockTakenSql;
+    //highest id present before the first block was allocated, -1 until then
+    private volatile long checkUpTo = -1;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object setting = serviceRegistry.getService(ConfigurationService.class).getSettings().get(ALLOCATION_SIZE_SETTING);
+        allocationSize = setting == null ? DEFAULT_ALLOCATION_SIZE : Integer.parseInt(setting.toString());
+        params.setProperty(INCREMENT_PARAM, Integer.toString(allocationSize));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+
+        String table = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        String pk = params.getProperty(PersistentIdentifierGenerator.PK);
+        maxIdSql = "select coalesce(max(" + pk + "), 0) from " + table;
+        blockTakenSql = "select count(*) from " + table + " where " + pk + " between ? and ?";
+    }
+
+    /**
+     * @return the configured number of ids per sequence round trip
+     */
+    public int getAllocationSize() {
+        return allocationSize;
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        AccessCallback sequence = getDatabaseStructure().buildCallback(session);
+        return getOptimizer().generate(new AccessCallback() {
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                return nextFreeBlock(session, sequence);
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return sequence.getTenantIdentifier();
+            }
+        });
+    }
+
+    /**
+     * Called by the optimizer, which holds its own lock, whenever the current block is used up.
+     */
+    private IntegralDataTypeHolder nextFreeBlock(SharedSessionContractImplementor session, AccessCallback sequence) {
+        if (checkUpTo < 0){
+            checkUpTo = queryLong(session, maxIdSql, -1, -1);
+        }
+        while (true) {
+            IntegralDataTypeHolder lo = sequence.getNextValue();
+            long first = lo.makeValue().longValue();
+            if (first > checkUpTo || queryLong(session, blockTakenSql, first, first + allocationSize - 1) == 0){
+                return lo;
+            }
+        }
+    }
+
+    private static long queryLong(SharedSessionContractImplementor session, String sql, long from, long to) {
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        try {
+            PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+            try {
+                if (from >= 0){
+                    statement.setLong(1, from);
+                    statement.setLong(2, to);
+                }
+                ResultSet result = jdbc.getResultSetReturn().extract(statement);
+                try {
+                    result.next();
+                    return result.getLong(1);
+                } finally {
+                    jdbc.getLogicalConnection().getResourceRegistry().release(result, statement);
+                }
+            } finally {
+                jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+                jdbc.afterStatementExecution();
+            }
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "could not check id block", sql);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every SQL statement Hibernate prepares. Registered through 
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector, which makes Hibernate instantiate it itself, 
+ * hence the static counters. {@link #capture(Runnable)} also hands out the SQL text itself, for tests that check what
+ * Hibernate really sends.
+ */
+public class StatementCounter implements StatementInspector {
+
+    /** Statement kinds counted by {@link #total(String)}, by their leading keyword. */
+    public static final List<String> KINDS = List.of("select", "insert", "update", "delete", "other");
+
+    private static final LongAdder STATEMENTS = new LongAdder();
+    private static final LongAdder[] TOTALS = new LongAdder[KINDS.size()];
+    private static volatile Queue<String> captured;
+
+    static {
+        for (int i = 0; i < TOTALS.length; i++){
+            TOTALS[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.increment();
+        TOTALS[kindOf(sql)].increment();
+        Queue<String> queue = captured;
+        if (queue != null){
+            queue.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * @param kind one of {@link #KINDS}
+     * @return number of statements of that kind prepared since startup, never reset
+     */
+    public static long total(String kind) {
+        return TOTALS[KINDS.indexOf(kind)].sum();
+    }
+
+    /**
+     * @return number of statements prepared since startup or the last {@link #reset()}
+     */
+    public static long count() {
+        return STATEMENTS.sum();
+    }
+
+    public static void reset() {
+        STATEMENTS.reset();
+    }
+
+    /**
+     * Runs an action and collects the statements prepared while it runs, on any thread. Captures do not nest.
+     * 
+     * @return the SQL of every statement, in the order they were prepared
+     */
+    public static List<String> capture(Runnable action) {
+        Queue<String> queue = new ConcurrentLinkedQueue<>();
+        captured = queue;
+        try {
+            action.run();
+        } finally {
+            captured = null;
+        }
+        return new ArrayList<>(queue);
+    }
+
+    private static int kindOf(String sql) {
+        String trimmed = sql.stripLeading();
+        for (int i = 0; i < KINDS.size() - 1; i++){
+            if (trimmed.regionMatches(true, 0, KINDS.get(i), 0, KINDS.get(i).length())){
+                return i;
+            }
+        }
+        return KINDS.size() - 1;
+    }
+}
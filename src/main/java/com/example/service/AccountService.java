@@ -1,25 +1,75 @@
 package com.example.service;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import javax.security.sasl.AuthenticationException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import com.example.entity.Account;
 import com.example.exception.ClientErrorException;
 import com.example.exception.ConflictException;
+import com.example.index.AccountIdIndex;
+import com.example.index.UsernameBloomFilter;
+import com.example.index.UsernamePrefixIndex;
 import com.example.repository.AccountRepository;
 
+//the reactive profile serves the API from com.example.reactive instead
+@Profile("!reactive")
 @Service
 public class AccountService {
 
     AccountRepository accountRepository;
+    PasswordHasher passwordHasher;
+    UsernameBloomFilter usernameBloomFilter;
+    AccountIdIndex accountIdIndex;
+    UsernamePrefixIndex usernamePrefixIndex;
+
+    int defaultSearchLimit;
+    int maxSearchLimit;
 
     @Autowired
     public void setAccountRepository(AccountRepository accountRepository){
         this.accountRepository = accountRepository;
     }
 
+    @Autowired
+    public void setUsernameBloomFilter(UsernameBloomFilter usernameBloomFilter){
+        this.usernameBloomFilter = usernameBloomFilter;
+    }
+
+    @Autowired
+    public void setAccountIdIndex(AccountIdIndex accountIdIndex){
+        this.accountIdIndex = accountIdIndex;
+    }
+
+    @Autowired
+    public void setUsernamePrefixIndex(UsernamePrefixIndex usernamePrefixIndex){
+        this.usernamePrefixIndex = usernamePrefixIndex;
+    }
+
+    @Value("${app.accounts.search.default-limit:10}")
+    public void setDefaultSearchLimit(int defaultSearchLimit){
+        this.defaultSearchLimit = defaultSearchLimit;
+    }
+
+    @Value("${app.accounts.search.max-limit:100}")
+    public void setMaxSearchLimit(int maxSearchLimit){
+        this.maxSearchLimit = maxSearchLimit;
+    }
+
+    @Autowired
+    public void setPasswordHasher(PasswordHasher passwordHasher){
+        this.passwordHasher = passwordHasher;
+    }
+
     /**
      * ## 1: Our API should be able to process new User registrations.
      * 
@@ -33,23 +83,45 @@ public class AccountService {
      * - If the registration is not successful due to a duplicate username, the response status should be 409. (Conflict)
      * - If the registration is not successful for some other reason, the response status should be 400. (Client error)
      * 
+     * A username the Bloom filter of taken usernames rules out skips the existence query, the unique constraint on 
+     * username still rejects a duplicate that slipped past it. The password is hashed on the password hasher's 
+     * executor and only the hash is persisted. The returned account echoes the password from the request, like the 
+     * response always has.
+     * 
      * @param account the Account object provided by the post request body
-     * @return account object with accountId if successful
+     * @return future of the account object with accountId if successful, completed exceptionally with 
+     *      ConflictException if the username was taken concurrently
      * @throws ClientErrorException if basic criteria are not met
      * @throws ConflictException if username is already in use
      */
-    public Account addNewAccount(Account account) throws ClientErrorException, ConflictException {
-        if (account.getUsername().isBlank() || account.getPassword().length() < 4){
+    public CompletableFuture<Account> addNewAccount(Account account) throws ClientErrorException, ConflictException {
+        if (account.getUsername() == null || account.getUsername().isBlank() 
+                || account.getPassword() == null || account.getPassword().length() < 4){
             //if provided account fails basic criteria
             throw new ClientErrorException("Registration criteria not met");
-        }else if (accountRepository.existsByUsername(account.getUsername())){
-            //if account with username already exists
-            throw new ConflictException("Duplicate username.");
-        }else{
-            //add account to DB and return account with accountId
-            account = accountRepository.save(account);
-            return account;
+        }else if (usernameBloomFilter.mightBeTaken(account.getUsername())){
+            //only ask the DB when the Bloom filter cannot rule the username out
+            if (accountRepository.existsByUsername(account.getUsername())){
+                //if account with username already exists
+                throw new ConflictException("Duplicate username.");
+            }
+            usernameBloomFilter.recordFalsePositive();
         }
+        String username = account.getUsername();
+        String password = account.getPassword();
+        return passwordHasher.submit(() -> {
+            //add account to DB and return account with accountId, the unique constraint settles races
+            Account saved;
+            try {
+                saved = accountRepository.save(new Account(username, passwordHasher.hash(password)));
+            } catch (DataIntegrityViolationException e) {
+                throw new ConflictException("Duplicate username.");
+            }
+            usernameBloomFilter.add(username);
+            accountIdIndex.add(saved.getAccountId());
+            usernamePrefixIndex.add(username);
+            return new Account(saved.getAccountId(), username, password);
+        });
     }
 
     /**
@@ -63,14 +135,48 @@ public class AccountService {
      *      in the response body, including its accountId. The response status should be 200 OK, which is the default.
      * - If the login is not successful, the response status should be 401. (Unauthorized)
      * 
+     * The account is looked up by username on the calling thread, then the password is verified in constant time on 
+     * the password hasher's executor. A legacy plaintext password, or one hashed with fewer iterations than currently 
+     * configured, is rehashed and stored on a successful login.
+     * 
      * @param account the Account object provided by the post request body
-     * @return account object with accountId if successful, otherwise throws javax.security.sasl.AuthenticationException
-     * @throws AuthenticationException 
+     * @return future of the account object with accountId if successful, otherwise completed exceptionally with 
+     *      javax.security.sasl.AuthenticationException
      */
-    public Account loginWithAccount(Account account) throws AuthenticationException {
-        //check DB for matching username and password and return result of query
-        account = accountRepository.findByUsernameAndPassword(account.getUsername(), account.getPassword())
-                .orElseThrow(() -> new AuthenticationException("Login unsuccessful."));
-        return account;
+    public CompletableFuture<Account> loginWithAccount(Account account) {
+        Optional<Account> stored = account.getUsername() == null ? Optional.empty() 
+                : accountRepository.findByUsername(account.getUsername());
+        String password = account.getPassword();
+        return passwordHasher.submit(() -> {
+            String storedPassword = stored.map(Account::getPassword).orElse(null);
+            if (!passwordHasher.verify(password, storedPassword)){
+                throw new CompletionException(new AuthenticationException("Login unsuccessful."));
+            }
+            Account found = stored.get();
+            if (passwordHasher.needsRehash(storedPassword)){
+                accountRepository.updatePassword(found.getAccountId(), passwordHasher.hash(password));
+            }
+            return new Account(found.getAccountId(), found.getUsername(), password);
+        });
+    }
+
+    /**
+     * Username autocomplete, served from the in-memory {@link UsernamePrefixIndex} without a database query.
+     * 
+     * @param prefix the start of the usernames to find
+     * @param limit maximum number of usernames, or {@code null} for app.accounts.search.default-limit
+     * @return up to {@code limit} usernames starting with prefix, in sorted order
+     * @throws ClientErrorException if the prefix is empty or the limit is not between 1 and 
+     *      app.accounts.search.max-limit
+     */
+    public List<String> searchUsernames(String prefix, Integer limit) throws ClientErrorException {
+        if (prefix == null || prefix.isEmpty()){
+            throw new ClientErrorException("prefix must not be empty");
+        }
+        int searchLimit = limit == null ? defaultSearchLimit : limit;
+        if (searchLimit < 1 || searchLimit > maxSearchLimit){
+            throw new ClientErrorException("limit must be between 1 and " + maxSearchLimit);
+        }
+        return usernamePrefixIndex.search(prefix, searchLimit);
     }
 }
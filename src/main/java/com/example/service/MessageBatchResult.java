@@ -0,0 +1,48 @@
+package com.example.service;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a POST /messages/batch request, in the same position as the item in the request array.
+ * 
+ * A created item carries status 200 and the message with its messageId, a rejected item carries status 400 and the 
+ * reason, and an item over the author's rate limit carries status 429, mirroring the responses of POST /messages.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageBatchResult {
+
+    private final int status;
+    private final Message message;
+    private final String error;
+
+    private MessageBatchResult(int status, Message message, String error) {
+        this.status = status;
+        this.message = message;
+        this.error = error;
+    }
+
+    public static MessageBatchResult created(Message message) {
+        return new MessageBatchResult(200, message, null);
+    }
+
+    public static MessageBatchResult rejected(String error) {
+        return new MessageBatchResult(400, null, error);
+    }
+
+    public static MessageBatchResult limited(String error) {
+        return new MessageBatchResult(429, null, error);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
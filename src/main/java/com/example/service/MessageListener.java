@@ -0,0 +1,26 @@
+package com.example.service;
+
+import com.example.entity.Message;
+
+/**
+ * Hook for in-memory structures derived from the message table. {@link MessageService} calls every listener bean
+ * after a write has been committed, on the thread that made it, in the order of their {@code @Order}: the caches
+ * first, then {@link com.example.cache.ChangeVersions}. The events of one message arrive in the order its writes
+ * committed, and never before its creation, see {@link MessageLocks}; events of different messages may interleave.
+ * The messages handed to listeners are detached copies shared by all of them, to keep but not to modify.
+ */
+public interface MessageListener {
+
+    default void messageCreated(Message message) {
+    }
+
+    /**
+     * @param oldMessage the message as it was before the update
+     * @param newMessage the message as it is now
+     */
+    default void messageUpdated(Message oldMessage, Message newMessage) {
+    }
+
+    default void messageDeleted(Message message) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link MessageListener} events of one message in the order its writes committed. Listeners run after
+ * commit, so without this two edits of a message could reach them in the reverse order, leaving the older text in
+ * the caches for good, and a delete could reach them before the create of the same message and be undone by it.
+ *
+ * An update or delete holds the lock of its message, one of a fixed set of stripes chosen by messageId, from before
+ * it touches the database until every listener has run, so changes of one message take turns end to end. A create
+ * cannot take the lock before its id is known, and its listeners may run on another thread, like the write-behind
+ * writer. Instead, the create marks its id as created from the moment the id is assigned, which is before the row
+ * can be seen. When every listener has run, it clears the mark. {@link #lock(int)} waits for the mark to clear, so
+ * no change of a message reaches the listeners before its creation does.
+ *
+ * A thread holding a stripe never waits for another stripe, and a create never waits for a stripe, so the locks
+ * cannot deadlock.
+ */
+@Component
+public class MessageLocks {
+
+    private static final int STRIPES = 256;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Map<Integer, CountDownLatch> creating = new ConcurrentHashMap<>();
+
+    public MessageLocks() {
+        for (int i = 0; i < STRIPES; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Takes the lock of a message, once listeners have been told about its creation if that is still under way.
+     */
+    public void lock(int messageId) {
+        stripe(messageId).lock();
+        CountDownLatch created = creating.get(messageId);
+        if (created == null){
+            return;
+        }
+        try {
+            created.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void unlock(int messageId) {
+        stripe(messageId).unlock();
+    }
+
+    /**
+     * Marks a message as being created, before its row can be seen by anyone else.
+     */
+    public void creating(int messageId) {
+        creating.put(messageId, new CountDownLatch(1));
+    }
+
+    /**
+     * Clears the mark of {@link #creating(int)} once every listener has been told, or once the create failed.
+     */
+    public void created(int messageId) {
+        CountDownLatch created = creating.remove(messageId);
+        if (created != null){
+            created.countDown();
+        }
+    }
+
+    private ReentrantLock stripe(int messageId) {
+        return stripes[(messageId * 0x9E3779B9) >>> 24];
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import com.example.entity.Message;
+import com.example.exception.ClientErrorException;
+
+/**
+ * One keyset page of messages, along with the opaque cursor that fetches the page after it.
+ * 
+ * The cursor only encodes the last messageId of the page, but clients should treat it as an opaque token and pass it
+ * back unchanged as the {@code after} parameter.
+ */
+public class MessagePage {
+
+    private static final String CURSOR_PREFIX = "m:";
+
+    private final List<Message> messages;
+    private final String nextCursor;
+
+    public MessagePage(List<Message> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return cursor for the next page, or {@code null} if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Turns a result fetched with one row of lookahead into a page: the extra row only tells us there is a next page.
+     * 
+     * @param messages up to pageLimit + 1 messages in messageId order
+     * @param pageLimit maximum number of messages in the page
+     */
+    public static MessagePage fromLookahead(List<Message> messages, int pageLimit) {
+        if (messages.size() <= pageLimit){
+            return new MessagePage(messages, null);
+        }
+        List<Message> page = messages.subList(0, pageLimit);
+        return new MessagePage(page, encodeCursor(page.get(pageLimit - 1).getMessageId()));
+    }
+
+    /**
+     * @param messageId the last messageId of a page
+     * @return opaque cursor pointing just past messageId
+     */
+    public static String encodeCursor(int messageId) {
+        byte[] raw = (CURSOR_PREFIX + messageId).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * @param cursor a cursor produced by {@link #encodeCursor(int)}, or {@code null} for the first page
+     * @return the messageId the cursor points past, 0 for the first page
+     * @throws ClientErrorException if the cursor was not produced by this API
+     */
+    public static int decodeCursor(String cursor) throws ClientErrorException {
+        if (cursor == null || cursor.isEmpty()){
+            return 0;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (raw.startsWith(CURSOR_PREFIX)){
+                return Integer.parseInt(raw.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            //bad base64 or bad number, fall through
+        }
+        throw new ClientErrorException("Invalid cursor");
+    }
+}
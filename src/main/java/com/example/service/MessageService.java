@@ -1,20 +1,68 @@
 package com.example.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.cache.MessageCache;
+import com.example.cache.RecentFeed;
+import com.example.cache.RecentTimeWindow;
+import com.example.cache.TimelineCache;
 import com.example.entity.Message;
 import com.example.exception.ClientErrorException;
+import com.example.index.AccountIdIndex;
+import com.example.index.AccountStats;
+import com.example.index.AccountStatsIndex;
+import com.example.index.MessageTextIndex;
+import com.example.ratelimit.PostingRateLimiter;
 import com.example.repository.AccountRepository;
 import com.example.repository.MessageRepository;
 
+//the reactive profile serves the API from com.example.reactive instead
+@Profile("!reactive")
 @Service
 public class MessageService {
 
     MessageRepository messageRepository;
     AccountRepository accountRepository;
+    EntityManager entityManager;
+    TransactionTemplate transactionTemplate;
+    MessageCache messageCache;
+    TimelineCache timelineCache;
+    RecentFeed recentFeed;
+    RecentTimeWindow recentTimeWindow;
+    AccountIdIndex accountIdIndex;
+    MessageTextIndex messageTextIndex;
+    AccountStatsIndex accountStatsIndex;
+    MessageWriteBehind messageWriteBehind;
+    PostingRateLimiter postingRateLimiter;
+    MessageLocks messageLocks;
+    List<MessageListener> messageListeners;
+
+    int defaultPageLimit;
+    int maxPageLimit;
+    int maxBatchSize;
+    int jdbcBatchSize;
 
     @Autowired
     public void setMessageRepository(MessageRepository messageRepository){
@@ -26,6 +74,91 @@ public class MessageService {
         this.accountRepository = accountRepository;
     }
 
+    @Autowired
+    public void setMessageCache(MessageCache messageCache){
+        this.messageCache = messageCache;
+    }
+
+    @Autowired
+    public void setTimelineCache(TimelineCache timelineCache){
+        this.timelineCache = timelineCache;
+    }
+
+    @Autowired
+    public void setRecentFeed(RecentFeed recentFeed){
+        this.recentFeed = recentFeed;
+    }
+
+    @Autowired
+    public void setRecentTimeWindow(RecentTimeWindow recentTimeWindow){
+        this.recentTimeWindow = recentTimeWindow;
+    }
+
+    @Autowired
+    public void setPostingRateLimiter(PostingRateLimiter postingRateLimiter){
+        this.postingRateLimiter = postingRateLimiter;
+    }
+
+    @Autowired
+    public void setMessageLocks(MessageLocks messageLocks){
+        this.messageLocks = messageLocks;
+    }
+
+    @Autowired
+    public void setMessageListeners(List<MessageListener> messageListeners){
+        this.messageListeners = messageListeners;
+    }
+
+    @Autowired
+    public void setAccountIdIndex(AccountIdIndex accountIdIndex){
+        this.accountIdIndex = accountIdIndex;
+    }
+
+    @Autowired
+    public void setMessageTextIndex(MessageTextIndex messageTextIndex){
+        this.messageTextIndex = messageTextIndex;
+    }
+
+    @Autowired
+    public void setAccountStatsIndex(AccountStatsIndex accountStatsIndex){
+        this.accountStatsIndex = accountStatsIndex;
+    }
+
+    @Autowired
+    public void setMessageWriteBehind(MessageWriteBehind messageWriteBehind){
+        this.messageWriteBehind = messageWriteBehind;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PersistenceContext
+    public void setEntityManager(EntityManager entityManager){
+        this.entityManager = entityManager;
+    }
+
+    @Value("${app.messages.batch.max-size:10000}")
+    public void setMaxBatchSize(int maxBatchSize){
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    public void setJdbcBatchSize(int jdbcBatchSize){
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    @Value("${app.messages.page.default-limit:50}")
+    public void setDefaultPageLimit(int defaultPageLimit){
+        this.defaultPageLimit = defaultPageLimit;
+    }
+
+    @Value("${app.messages.page.max-limit:1000}")
+    public void setMaxPageLimit(int maxPageLimit){
+        this.maxPageLimit = maxPageLimit;
+    }
+
     /**
      * ## 3: Our API should be able to process the creation of new messages.
      * 
@@ -39,18 +172,112 @@ public class MessageService {
      *      new message should be persisted to the database.
      * - If the creation of the message is not successful, the response status should be 400. (Client error)
      * 
+     * With app.messages.write-behind.enabled the message is queued for the {@link MessageWriteBehind} writer once it 
+     * has its messageId, and persisted with the next batch instead of in a transaction of its own. A message the 
+     * database refuses at that point is dropped and logged after the 200 has been sent.
+     * 
+     * Every valid post takes a token from the {@link PostingRateLimiter} bucket of its author before it is written, 
+     * so an account posting too fast is refused before any database write. The author is checked first, so no bucket 
+     * is made for an account that does not exist.
+     * 
      * @param message the Message object provided by the post request body
      * @return message object with messageId if successful
      * @throws ClientErrorException if criteria not met
+     * @throws java.util.concurrent.RejectedExecutionException if the write-behind queue is full
+     * @throws com.example.exception.TooManyRequestsException if the author is over the rate limit
      */
     public Message addMessage(Message message) throws ClientErrorException {
         if (message.getMessageText().isBlank() || message.getMessageText().length() > 255 
-                || !(accountRepository.existsById(message.getPostedBy()))){
+                || !accountExists(message.getPostedBy())){
             throw new ClientErrorException("Message not created");
         }
-        //add message into DB and return message with messageId
-        message = messageRepository.save(message);
-        return message;
+        postingRateLimiter.acquire(PostingRateLimiter.accountKey(message.getPostedBy()));
+        if (messageWriteBehind.isEnabled()){
+            return messageWriteBehind.enqueue(message);
+        }
+        //add message into DB and return message with messageId, the foreign key catches an author that just vanished
+        try {
+            return transactionTemplate.execute(status -> {
+                Message saved = messageRepository.save(message);
+                announceAfterCommit(List.of(saved));
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new ClientErrorException("Message not created");
+        }
+    }
+
+    /**
+     * Checks an author against the in-memory account id index, and only asks the DB when the index does not know 
+     * the id, remembering the answer.
+     */
+    private boolean accountExists(Integer accountId) {
+        if (accountIdIndex.contains(accountId)){
+            return true;
+        }
+        if (accountId == null || !accountRepository.existsById(accountId)){
+            return false;
+        }
+        accountIdIndex.add(accountId);
+        return true;
+    }
+
+    /**
+     * Batch variant of {@link #addMessage(Message)} for bursts of posts.
+     * 
+     * Every item is validated the same way as a single post, but authors missing from the account id index are 
+     * checked with one IN query for the whole batch, and the valid items are inserted in a single transaction through JDBC statement batching. The 
+     * persistence context is flushed and cleared every JDBC batch so it does not grow with the request. Listeners are 
+     * told about the new messages once the transaction has committed.
+     * 
+     * Every valid item takes a token from the {@link PostingRateLimiter} bucket of its author, as a single post would, 
+     * and an item over the limit is refused with status 429 while the rest of the batch goes ahead.
+     * 
+     * @param messages the Message objects provided by the post request body
+     * @return one result per message, in request order
+     * @throws ClientErrorException if the batch is empty or larger than app.messages.batch.max-size
+     */
+    @Transactional
+    public List<MessageBatchResult> addMessages(List<Message> messages) throws ClientErrorException {
+        if (messages.isEmpty() || messages.size() > maxBatchSize){
+            throw new ClientErrorException("Batch must hold between 1 and " + maxBatchSize + " messages");
+        }
+        //authors the account id index does not know are checked in one IN query
+        Set<Integer> unknownAuthors = new HashSet<>();
+        for (Message message : messages){
+            if (message != null && message.getPostedBy() != null && !accountIdIndex.contains(message.getPostedBy())){
+                unknownAuthors.add(message.getPostedBy());
+            }
+        }
+        Set<Integer> foundAuthors = unknownAuthors.isEmpty() ? unknownAuthors 
+                : new HashSet<>(accountRepository.findExistingIds(unknownAuthors));
+        foundAuthors.forEach(accountIdIndex::add);
+
+        List<MessageBatchResult> results = new ArrayList<>(messages.size());
+        List<Message> created = new ArrayList<>();
+        int pending = 0;
+        for (Message message : messages){
+            if (message == null || message.getMessageText() == null || message.getMessageText().isBlank() 
+                    || message.getMessageText().length() > 255){
+                results.add(MessageBatchResult.rejected("Message text must be 1 to 255 characters"));
+            }else if (!accountIdIndex.contains(message.getPostedBy()) && !foundAuthors.contains(message.getPostedBy())){
+                results.add(MessageBatchResult.rejected("postedBy does not refer to an existing account"));
+            }else if (!postingRateLimiter.tryAcquire(PostingRateLimiter.accountKey(message.getPostedBy()))){
+                results.add(MessageBatchResult.limited("Too many requests, try again later."));
+            }else{
+                message.setMessageId(null);
+                entityManager.persist(message);
+                results.add(MessageBatchResult.created(message));
+                created.add(message);
+                if (++pending == jdbcBatchSize){
+                    entityManager.flush();
+                    entityManager.clear();
+                    pending = 0;
+                }
+            }
+        }
+        announceAfterCommit(created);
+        return results;
     }
 
     /** 
@@ -69,6 +296,107 @@ public class MessageService {
         return messageRepository.findAll();
     }
 
+    /**
+     * Cursor-paginated variant of {@link #getAllMessages()}. Pages are ordered by messageId and read with a keyset
+     * query, so memory per request is bounded by the limit and latency does not grow with the table.
+     * 
+     * @param after opaque cursor from a previous page, or {@code null} for the first page
+     * @param limit maximum number of messages in the page, or {@code null} for the default
+     * @return page of messages with the cursor for the next page
+     * @throws ClientErrorException if the cursor or limit is invalid
+     */
+    public MessagePage getMessagesPage(String after, Integer limit) throws ClientErrorException {
+        int afterId = MessagePage.decodeCursor(after);
+        int pageLimit = resolvePageLimit(limit);
+        List<Message> messages = messageRepository.findByMessageIdGreaterThanOrderByMessageIdAsc(afterId, 
+                PageRequest.of(0, pageLimit + 1));
+        return MessagePage.fromLookahead(messages, pageLimit);
+    }
+
+    /**
+     * Latest-N variant of {@link #getAllMessages()} for clients polling the feed. Served from the in-memory recent 
+     * feed, so it never reads the database, however often it is polled.
+     * 
+     * @param recent number of newest messages to return
+     * @return up to {@code recent} of the newest messages, oldest first
+     * @throws ClientErrorException if recent is not between 1 and app.feed.recent.capacity
+     */
+    public List<Message> getRecentMessages(int recent) throws ClientErrorException {
+        if (recent < 1 || recent > recentFeed.getCapacity()){
+            throw new ClientErrorException("recent must be between 1 and " + recentFeed.getCapacity());
+        }
+        return recentFeed.getRecent(recent);
+    }
+
+    /**
+     * Time-range variant of {@link #getAllMessages()}. A range that starts inside the {@link RecentTimeWindow} is 
+     * served from memory, any other is read from the (timePostedEpoch, messageId) index.
+     * 
+     * @param since first timePostedEpoch to include, or {@code null} for no lower bound
+     * @param until first timePostedEpoch to leave out, or {@code null} for no upper bound
+     * @return messages posted in the range, ordered by timePostedEpoch and then messageId
+     * @throws ClientErrorException if since is after until
+     */
+    public List<Message> getMessagesInTimeRange(Long since, Long until) throws ClientErrorException {
+        long from = resolveSince(since, until);
+        long to = until == null ? Long.MAX_VALUE : until;
+        List<Message> messages = recentTimeWindow.getRange(from, to, null);
+        return messages != null ? messages : messageRepository.findByTimePostedRange(from, to);
+    }
+
+    /**
+     * Full-text variant of {@link #getAllMessages()}. The query is matched against the in-memory text index, and 
+     * only the matching messages of the page are read, with one query by primary key.
+     * 
+     * @param query words that must all appear in the text, a word ending in * matches any word it starts
+     * @param limit maximum number of messages, or {@code null} for the default
+     * @return up to {@code limit} matching messages, newest first
+     * @throws ClientErrorException if the query holds no word or the limit is invalid
+     * @see MessageTextIndex
+     */
+    public List<Message> searchMessages(String query, Integer limit) throws ClientErrorException {
+        int pageLimit = resolvePageLimit(limit);
+        if (query == null || MessageTextIndex.tokenize(query).isEmpty()){
+            throw new ClientErrorException("q must hold at least one word");
+        }
+        int[] messageIds = messageTextIndex.search(query, pageLimit);
+        if (messageIds.length == 0){
+            return List.of();
+        }
+        List<Integer> ids = new ArrayList<>(messageIds.length);
+        for (int messageId : messageIds){
+            ids.add(messageId);
+        }
+        Map<Integer, Message> found = new HashMap<>();
+        messageRepository.findAllById(ids).forEach(message -> found.put(message.getMessageId(), message));
+        //keep the ranking of the index, skipping messages deleted since
+        List<Message> messages = new ArrayList<>(ids.size());
+        for (Integer messageId : ids){
+            Message message = found.get(messageId);
+            if (message != null){
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Streaming variant of {@link #getAllMessages()}. Each message is handed to the consumer as soon as it is read 
+     * from the cursor and is then detached, so the persistence context, and with it the heap, stays the same size no 
+     * matter how many messages there are.
+     * 
+     * @param consumer receives every message in messageId order
+     */
+    @Transactional(readOnly = true)
+    public void streamAllMessages(Consumer<Message> consumer) {
+        try (Stream<Message> messages = messageRepository.streamAll()) {
+            messages.forEach(message -> {
+                consumer.accept(message);
+                entityManager.detach(message);
+            });
+        }
+    }
+
     /** 
      * ## 5: Our API should be able to retrieve a message by its ID.
      * 
@@ -82,11 +410,22 @@ public class MessageService {
      * @return message object identified by messageId, if it exssts, {@code null} otherwise
      */
     public Message getMessageById(int messageId) {
-        //get message from DB
-        if(messageRepository.existsById(messageId)){
-            return messageRepository.findById(messageId).get();
+        //a message still queued for write-behind is only in memory
+        Message message = messageWriteBehind.getPending(messageId);
+        if (message != null){
+            return message;
+        }
+        message = messageCache.get(messageId);
+        if (message != null){
+            return message;
         }
-        return null;
+        //get message from DB, caching it unless a writer invalidated it in the meantime
+        long stamp = messageCache.stamp(messageId);
+        message = messageRepository.findById(messageId).orElse(null);
+        if (message != null){
+            messageCache.putIfFresh(message, stamp);
+        }
+        return message;
     }
 
     /**
@@ -101,17 +440,43 @@ public class MessageService {
      *      because the DELETE verb is intended to be idempotent, ie, multiple calls to the DELETE endpoint should 
      *      respond with the same type of response.
      * 
+     * A message the {@link MessageCache} holds is deleted with a single DELETE, the listeners take the row from the 
+     * cache. Any other message is read and locked first, so the listeners know whose message it was.
+     * 
      * @param messageId the messageId provided by the endpoint DELETE path
      * @return number of rows updated
      */
     public int deleteMessageById(int messageId) {
-        //delete message from DB if it exists
-        int rows = 0;
-        if(messageRepository.existsById(messageId)){
-            messageRepository.deleteById(messageId);
-            rows = 1;
+        //delete message from DB if it exists, once it got there if it is still queued for write-behind, and tell the 
+        //listeners before any other change of the message can
+        messageLocks.lock(messageId);
+        try {
+            Message message = knownMessage(messageId);
+            if (message != null){
+                //the listeners learn the row from the cache, a single DELETE is enough
+                if (messageRepository.deleteByMessageId(messageId) == 0){
+                    messageCache.invalidate(messageId);
+                    return 0;
+                }
+            }else{
+                message = transactionTemplate.execute(status -> {
+                    Message deleted = messageRepository.findLockedByMessageId(messageId).map(MessageService::copyOf)
+                            .orElse(null);
+                    if (deleted != null){
+                        messageRepository.deleteByMessageId(messageId);
+                    }
+                    return deleted;
+                });
+            }
+            if (message == null){
+                return 0;
+            }
+            Message deleted = message;
+            messageListeners.forEach(listener -> listener.messageDeleted(deleted));
+            return 1;
+        } finally {
+            messageLocks.unlock(messageId);
         }
-        return rows;
     }
 
     /**
@@ -127,20 +492,60 @@ public class MessageService {
      *      The message existing on the database should have the updated messageText.
      * - If the update of the message is not successful for any reason, the response status should be 400. (Client error)
      * 
+     * Edits are rate limited like posts, from the bucket of the author. When the message cache or the write-behind 
+     * queue knows the author, the token is taken before any database work, otherwise right after the locked read 
+     * returns postedBy, and a refused edit rolls back before the row is changed.
+     * 
+     * Like a delete, an edit of a message the {@link MessageCache} holds is a single UPDATE, any other message is read 
+     * and locked first.
+     * 
      * @param messageId the messageId provided by the endpoint PATCH path
      * @param newMessage the Message object provided by the post request body
      * @return number of rows updated (1)
      * @throws ClientErrorException if criteria not met or messageId does not exist
+     * @throws com.example.exception.TooManyRequestsException if the author is over the rate limit
      */
     public int updateMessage(int messageId, Message newMessage) throws ClientErrorException {
-        if (newMessage.getMessageText().isBlank() || newMessage.getMessageText().length() > 255 || !(messageRepository.existsById(messageId))){
+        Integer knownAuthor = knownAuthor(messageId);
+        if (knownAuthor != null){
+            postingRateLimiter.acquire(PostingRateLimiter.accountKey(knownAuthor));
+        }
+        if (newMessage.getMessageText().isBlank() || newMessage.getMessageText().length() > 255){
             throw new ClientErrorException("Message not updated");
         }
-        //update message in DB
-        Message oldMessage = messageRepository.findById(messageId).get();
-        oldMessage.setMessageText(newMessage.getMessageText());
-        messageRepository.save(oldMessage);
-        return 1;
+        //lock and read the row, none means the messageId does not exist, then update the message in DB; the message 
+        //lock is held until the listeners have been told, so they see concurrent edits in the order they committed
+        messageLocks.lock(messageId);
+        try {
+            Message oldMessage = knownMessage(messageId);
+            if (oldMessage != null){
+                //the listeners learn the row from the cache, a single UPDATE is enough
+                if (knownAuthor == null && oldMessage.getPostedBy() != null){
+                    postingRateLimiter.acquire(PostingRateLimiter.accountKey(oldMessage.getPostedBy()));
+                }
+                if (messageRepository.updateMessageText(messageId, newMessage.getMessageText()) == 0){
+                    messageCache.invalidate(messageId);
+                    throw new ClientErrorException("Message not updated");
+                }
+            }else{
+                oldMessage = transactionTemplate.execute(status -> {
+                    Message current = messageRepository.findLockedByMessageId(messageId).map(MessageService::copyOf)
+                            .orElseThrow(() -> new ClientErrorException("Message not updated"));
+                    if (knownAuthor == null && current.getPostedBy() != null){
+                        postingRateLimiter.acquire(PostingRateLimiter.accountKey(current.getPostedBy()));
+                    }
+                    messageRepository.updateMessageText(messageId, newMessage.getMessageText());
+                    return current;
+                });
+            }
+            Message replaced = oldMessage;
+            Message updated = new Message(replaced.getMessageId(), replaced.getPostedBy(), 
+                    newMessage.getMessageText(), replaced.getTimePostedEpoch());
+            messageListeners.forEach(listener -> listener.messageUpdated(replaced, updated));
+            return 1;
+        } finally {
+            messageLocks.unlock(messageId);
+        }
     }
 
     /**
@@ -156,7 +561,140 @@ public class MessageService {
      * @return list of all messages written by account identified by accountId
      */
     public List<Message> getAllMessagesByAccountId(int accountId) {
-        //get list of messages postedBy id
-        return messageRepository.findByPostedBy(accountId);
+        //get list of messages postedBy id, from the account timeline as far as it reaches
+        return timelineCache.getMessages(accountId);
+    }
+
+    /**
+     * Cursor-paginated variant of {@link #getAllMessagesByAccountId(int)}, see {@link #getMessagesPage}.
+     * 
+     * @param accountId the accountId provided by the endpoint GET path
+     * @param after opaque cursor from a previous page, or {@code null} for the first page
+     * @param limit maximum number of messages in the page, or {@code null} for the default
+     * @return page of messages written by accountId with the cursor for the next page
+     * @throws ClientErrorException if the cursor or limit is invalid
+     */
+    public MessagePage getMessagesPageByAccountId(int accountId, String after, Integer limit) throws ClientErrorException {
+        int afterId = MessagePage.decodeCursor(after);
+        int pageLimit = resolvePageLimit(limit);
+        List<Message> messages = timelineCache.getMessagesAfter(accountId, afterId, pageLimit + 1);
+        if (messages == null){
+            messages = messageRepository.findByPostedByAndMessageIdGreaterThanOrderByMessageIdAsc(accountId, afterId, 
+                    PageRequest.of(0, pageLimit + 1));
+        }
+        return MessagePage.fromLookahead(messages, pageLimit);
+    }
+
+    /**
+     * Time-range variant of {@link #getAllMessagesByAccountId(int)}, see {@link #getMessagesInTimeRange}. Served 
+     * from the account's part of the {@link RecentTimeWindow} when the range starts inside it, otherwise read from the 
+     * (postedBy, timePostedEpoch) index.
+     * 
+     * @param accountId the accountId provided by the endpoint GET path
+     * @param since first timePostedEpoch to include, or {@code null} for no lower bound
+     * @param until first timePostedEpoch to leave out, or {@code null} for no upper bound
+     * @return messages written by accountId in the range, ordered by timePostedEpoch and then messageId
+     * @throws ClientErrorException if since is after until
+     */
+    public List<Message> getMessagesByAccountIdInTimeRange(int accountId, Long since, Long until) 
+            throws ClientErrorException {
+        long from = resolveSince(since, until);
+        long to = until == null ? Long.MAX_VALUE : until;
+        List<Message> messages = recentTimeWindow.getRange(from, to, accountId);
+        return messages != null ? messages : messageRepository.findByPostedByAndTimePostedRange(accountId, from, to);
+    }
+
+    /**
+     * Message count and first and last timePostedEpoch of an account, from the counters of the 
+     * {@link AccountStatsIndex} rather than an aggregate query.
+     * 
+     * @param accountId the accountId provided by the endpoint GET path
+     * @return statistics of the account, a count of 0 if it has no messages
+     */
+    public AccountStats getAccountStats(int accountId) {
+        return accountStatsIndex.getStats(accountId);
+    }
+
+    /**
+     * Leaderboard of the accounts with the most messages, from the counters of the {@link AccountStatsIndex}.
+     * 
+     * @param limit maximum number of accounts, or {@code null} for the default page limit
+     * @return statistics of the top posters, most messages first
+     * @throws ClientErrorException if the limit is invalid
+     */
+    public List<AccountStats> getTopPosters(Integer limit) throws ClientErrorException {
+        return accountStatsIndex.getTopPosters(resolvePageLimit(limit));
+    }
+
+    /**
+     * Marks new messages as being created in {@link MessageLocks} and tells the listeners about them once the current 
+     * transaction has committed, clearing the marks after that. The rows cannot be seen before the commit, so no 
+     * update or delete of them reaches the listeners first.
+     */
+    private void announceAfterCommit(List<Message> created) {
+        created.forEach(message -> messageLocks.creating(message.getMessageId()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Message message : created){
+                    Message copy = copyOf(message);
+                    messageListeners.forEach(listener -> listener.messageCreated(copy));
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                created.forEach(message -> messageLocks.created(message.getMessageId()));
+            }
+        });
+    }
+
+    /**
+     * @return the author of messageId if the message cache or the write-behind queue knows it without a query, 
+     *      otherwise {@code null}
+     */
+    private Integer knownAuthor(int messageId) {
+        Message known = messageCache.peek(messageId);
+        if (known == null){
+            known = messageWriteBehind.getPending(messageId);
+        }
+        return known == null ? null : known.getPostedBy();
+    }
+
+    /**
+     * The message as it is in the database, if the message cache holds it. Only called under the lock of the message, 
+     * after every earlier change of it has reached the listeners and so the cache, which makes the cached copy current.
+     * 
+     * @return a copy of the cached message, or {@code null} if it has to be read
+     */
+    private Message knownMessage(int messageId) {
+        Message cached = messageCache.peek(messageId);
+        return cached == null ? null : copyOf(cached);
+    }
+
+    /**
+     * Detached copy of a message for the listeners, so they never share an instance with the persistence context or 
+     * the response.
+     */
+    private static Message copyOf(Message message) {
+        return new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(), 
+                message.getTimePostedEpoch());
+    }
+
+    private static long resolveSince(Long since, Long until) throws ClientErrorException {
+        if (since != null && until != null && since > until){
+            throw new ClientErrorException("since must not be after until");
+        }
+        return since == null ? Long.MIN_VALUE : since;
+    }
+
+    private int resolvePageLimit(Integer limit) throws ClientErrorException {
+        if (limit == null){
+            return defaultPageLimit;
+        }
+        if (limit < 1 || limit > maxPageLimit){
+            throw new ClientErrorException("limit must be between 1 and " + maxPageLimit);
+        }
+        return limit;
     }
 }
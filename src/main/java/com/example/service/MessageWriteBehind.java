@@ -0,0 +1,286 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.cache.ChangeVersions;
+import com.example.entity.Message;
+import com.example.metrics.MetricsRegistry;
+import com.example.metrics.WriteBehindMetrics;
+import com.example.repository.IdAllocator;
+
+/**
+ * Opt-in write-behind for POST /messages (app.messages.write-behind.enabled). A posted message gets its messageId
+ * right away from the {@link IdAllocator}, out of the same block a regular insert would take it from, is
+ * put on a queue of app.messages.write-behind.queue-capacity messages, and the request returns. When the queue is
+ * full the post is rejected with a {@link RejectedExecutionException}, which the API reports as 503.
+ *
+ * One writer thread takes the queued messages and inserts them through JDBC statement batching in a single
+ * transaction per batch. A batch is written once it holds app.messages.write-behind.batch-size messages, or
+ * app.messages.write-behind.flush-interval-ms after its first message, whichever comes first. If a batch fails, its
+ * messages are retried one transaction each and the ones the database still refuses are dropped: they are counted,
+ * logged with their messageIds, and never reach the listeners. The client was already answered 200 for them, so a
+ * post that got its messageId is not guaranteed to be stored; callers that need that guarantee leave write-behind
+ * off.
+ *
+ * Until its batch has committed a message is pending, and {@link #getPending(int)} serves it for reads by id. Its id
+ * is marked as being created in {@link MessageLocks} until the listeners have been told, so an update or delete of
+ * the message waits for the row. Listeners are only told about a message once its batch has committed, like after a
+ * regular insert, so the caches never hold a message the database does not.
+ * Shutdown refuses new posts and then writes whatever is still queued; {@link #enqueue(Message)} and {@link #stop()}
+ * exclude each other so no message is queued after the writer's last look at the queue. Messages still queued when
+ * the process dies are lost.
+ */
+//the reactive profile serves the API from com.example.reactive instead
+@Profile("!reactive")
+@Component
+public class MessageWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageWriteBehind.class);
+
+    private static final String INSERT_SQL =
+            "insert into message (messageId, postedBy, messageText, timePostedEpoch) values (?, ?, ?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private IdAllocator idAllocator;
+    private MessageLocks messageLocks;
+    private TransactionTemplate transactionTemplate;
+    private List<MessageListener> messageListeners = List.of();
+    private ChangeVersions changeVersions;
+    private WriteBehindMetrics metrics;
+
+    private boolean enabled;
+    private int queueCapacity = 10000;
+    private int batchSize = 500;
+    private long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private BlockingQueue<Message> queue;
+    private final Map<Integer, Message> pending = new ConcurrentHashMap<>();
+    private Thread writer;
+    //enqueue holds the read lock from the running check through the offer, stop takes the write lock to clear running
+    private final ReentrantReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    @Autowired
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Autowired
+    public void setIdAllocator(IdAllocator idAllocator){
+        this.idAllocator = idAllocator;
+    }
+
+    @Autowired
+    public void setMessageLocks(MessageLocks messageLocks){
+        this.messageLocks = messageLocks;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Autowired
+    public void setMessageListeners(List<MessageListener> messageListeners){
+        this.messageListeners = messageListeners;
+    }
+
+    @Autowired
+    public void setChangeVersions(ChangeVersions changeVersions){
+        this.changeVersions = changeVersions;
+    }
+
+    @Autowired
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry){
+        this.metrics = metricsRegistry.getWriteBehindMetrics();
+    }
+
+    @Value("${app.messages.write-behind.enabled:false}")
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    @Value("${app.messages.write-behind.queue-capacity:10000}")
+    public void setQueueCapacity(int queueCapacity){
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Value("${app.messages.write-behind.batch-size:500}")
+    public void setBatchSize(int batchSize){
+        this.batchSize = batchSize;
+    }
+
+    @Value("${app.messages.write-behind.flush-interval-ms:5}")
+    public void setFlushIntervalMillis(long flushIntervalMillis){
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled){
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        metrics.setQueueDepth(pending::size);
+        running = true;
+        writer = new Thread(this::writeLoop, "message-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops taking messages and waits for the writer to write everything still queued.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null){
+            return;
+        }
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        writer.join();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Assigns the messageId and queues a validated message for the writer.
+     *
+     * @return the message with its messageId
+     * @throws RejectedExecutionException if the queue is full or shutting down
+     */
+    public Message enqueue(Message message) {
+        Message queued;
+        boolean accepted;
+        runningLock.readLock().lock();
+        try {
+            if (!running){
+                throw new RejectedExecutionException("Message writer is stopped");
+            }
+            queued = new Message(idAllocator.nextId(Message.class), message.getPostedBy(), message.getMessageText(),
+                    message.getTimePostedEpoch());
+            messageLocks.creating(queued.getMessageId());
+            pending.put(queued.getMessageId(), queued);
+            accepted = queue.offer(queued);
+            if (!accepted){
+                pending.remove(queued.getMessageId());
+                messageLocks.created(queued.getMessageId());
+            }
+        } finally {
+            runningLock.readLock().unlock();
+        }
+        //reads by id may have seen the message already, so its ETag changes whether it stays or not
+        changeVersions.messageChanged(queued);
+        if (!accepted){
+            throw new RejectedExecutionException("Message queue is full");
+        }
+        return copyOf(queued);
+    }
+
+    /**
+     * @return the message if it is queued and not yet committed, {@code null} otherwise
+     */
+    public Message getPending(int messageId) {
+        Message message = pending.get(messageId);
+        return message == null ? null : copyOf(message);
+    }
+
+    private void writeLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()){
+            try {
+                Message first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null){
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize){
+                    Message next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null){
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                //only stop() ends the loop, and only once the queue is empty
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Message> batch) {
+        List<Message> committed = batch;
+        long start = System.nanoTime();
+        try {
+            insert(batch);
+            metrics.recordFlush(System.nanoTime() - start, batch.size());
+        } catch (RuntimeException e) {
+            //one bad row must not take the whole batch with it
+            committed = new ArrayList<>(batch.size());
+            for (Message message : batch){
+                try {
+                    insert(List.of(message));
+                    committed.add(message);
+                } catch (RuntimeException rowFailure) {
+                    metrics.recordDropped();
+                    log.error("Dropped queued message {} posted by {}, the database refused it",
+                            message.getMessageId(), message.getPostedBy(), rowFailure);
+                }
+            }
+            metrics.recordFlush(System.nanoTime() - start, committed.size());
+        }
+        for (Message message : committed){
+            Message created = copyOf(message);
+            messageListeners.forEach(listener -> listener.messageCreated(created));
+        }
+        for (Message message : batch){
+            pending.remove(message.getMessageId());
+            messageLocks.created(message.getMessageId());
+        }
+    }
+
+    private void insert(List<Message> messages) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, messages,
+                messages.size(), (statement, message) -> {
+                    statement.setInt(1, message.getMessageId());
+                    statement.setInt(2, message.getPostedBy());
+                    statement.setString(3, message.getMessageText());
+                    statement.setObject(4, message.getTimePostedEpoch());
+                }));
+    }
+
+    private static Message copyOf(Message message) {
+        return new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                message.getTimePostedEpoch());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hashes and verifies account passwords with PBKDF2-HMAC-SHA256, and owns the bounded executor that all of that work 
+ * runs on.
+ * 
+ * A hash costs app.password.iterations rounds, on purpose on the order of 100ms, so it must never run on a request 
+ * thread: {@link #submit(Supplier)} runs it on app.password.hash-threads dedicated threads behind a queue of 
+ * app.password.hash-queue-capacity tasks. When the queue is full the task is rejected with a 
+ * {@link java.util.concurrent.RejectedExecutionException}, which the API reports as 503, instead of letting logins 
+ * pile up and starve other endpoints.
+ * 
+ * Hashes are stored as {@code pbkdf2-sha256$<iterations>$<salt>$<hash>}. Anything else is a legacy plaintext password.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+    //hash verified against when the username does not exist, so both cases cost the same
+    private final String dummyHash;
+
+    public PasswordHasher(@Value("${app.password.iterations:210000}") int iterations,
+            @Value("${app.password.hash-threads:0}") int threads,
+            @Value("${app.password.hash-queue-capacity:256}") int queueCapacity) {
+        this.iterations = iterations;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, 
+                new ArrayBlockingQueue<>(queueCapacity), new HasherThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = hash("dummy password");
+    }
+
+    /**
+     * Runs hashing work on the hash executor.
+     * 
+     * @throws java.util.concurrent.RejectedExecutionException if the executor queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * @param password plaintext password
+     * @return encoded salted hash with the configured iteration count
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    /**
+     * Compares a password with a stored value in constant time. A stored value without the hash prefix is treated as 
+     * a legacy plaintext password.
+     * 
+     * @param password plaintext password from the login request
+     * @param stored stored password value, or {@code null} if the account does not exist
+     * @return true if the password matches
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null){
+            password = "";
+        }
+        if (stored == null){
+            verify(password, dummyHash);
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)){
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4){
+            return false;
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        byte[] expected = base64.decode(parts[3]);
+        byte[] actual = pbkdf2(password, base64.decode(parts[2]), Integer.parseInt(parts[1]));
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * @param stored stored password value of an account that just logged in
+     * @return true if it is plaintext or was hashed with fewer iterations than currently configured
+     */
+    public boolean needsRehash(String stored) {
+        if (!stored.startsWith(PREFIX)){
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        return Integer.parseInt(parts[1]) < iterations;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static class HasherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "password-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.threads;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Opt-in mode, turned on with app.threads.virtual.enabled=true, that runs every request on its own virtual thread
+ * instead of on Tomcat's pool of server.tomcat.threads.max platform threads. Needs a Java 21 runtime, the app fails to
+ * start otherwise.
+ *
+ * A handler that waits for a pooled connection or a statement then parks a cheap virtual thread instead of holding
+ * one of 200 platform threads, so a burst of requests no longer queues in front of an idle CPU. This removes the thread
+ * pool as a limit, not the other limits:
+ *  - at most spring.datasource.hikari.maximum-pool-size requests run statements at the same time. The others wait in
+ *    the pool for up to spring.datasource.hikari.connection-timeout, and the pool remains the real concurrency cap of
+ *    everything that touches the database.
+ *  - server.tomcat.max-connections bounds the requests in progress, and with them the memory they take.
+ *  - password hashing keeps running on its own bounded platform threads, see
+ *    {@link com.example.service.PasswordHasher}.
+ *
+ * A virtual thread blocked inside a synchronized block pins its carrier thread. The app's own shared state is guarded
+ * by ReentrantLock and lock-free structures for that reason, and Hikari waits for connections without monitors. H2
+ * does synchronize on the session for the length of each statement, but only a thread holding one of the pooled
+ * connections gets there, and an in-memory statement does not wait on I/O.
+ *
+ * Streaming responses and other async request processing run on virtual threads too. The whole test suite runs in
+ * this mode with mvn -Pvirtual-threads test on a Java 21 JDK.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+
+    private final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer() {
+        return factory -> factory.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(executor));
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    /**
+     * Runs after the web server has stopped, Tomcat does not shut down an executor it did not create.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads when the JVM has them.
+ *
+ * Virtual threads are final in Java 21, while the app is built for Java 17, the newest level Spring Boot 2.5 supports.
+ * The Java 21 API (Thread.ofVirtual() and Executors.newThreadPerTaskExecutor) is therefore looked up reflectively
+ * once, and the same build runs on either JVM: on 21 or later the virtual thread mode can be turned on, on older JVMs
+ * {@link #isSupported()} is false.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if this JVM can start virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @param namePrefix name of the threads, followed by a counter starting at 1
+     * @return an executor that starts a new virtual thread for every task
+     * @throws IllegalStateException if this JVM has no virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (!isSupported()){
+            throw new IllegalStateException("Virtual threads need Java 21 or later, this JVM is "
+                    + Runtime.version().feature());
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Virtual threads were a preview in Java 19 and 20, where Thread.ofVirtual() exists but throws unless the JVM
+     * runs with --enable-preview. Only the final API of Java 21 counts as supported.
+     */
+    private static Method findOfVirtual() {
+        if (Runtime.version().feature() < 21){
+            return null;
+        }
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            ofVirtual.invoke(null);
+            return ofVirtual;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
@@ -12,6 +12,10 @@ create table message (
     timePostedEpoch bigint,
     foreign key (postedBy) references account(accountId)
 );
+-- keep in sync with the indexes declared on the Message entity
+create index idx_message_postedBy_time on message (postedBy, timePostedEpoch);
+create index idx_message_postedBy_id on message (postedBy, messageId);
+create index idx_message_time_id on message (timePostedEpoch, messageId);
 
 -- Starting test values with ids of 9999 to avoid test issues
 insert into account values (9999, 'testuser1', 'password');
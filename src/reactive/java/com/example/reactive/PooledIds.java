@@ -0,0 +1,65 @@
+package com.example.reactive;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out ids from the same sequences, and in the same blocks, as {@link com.example.repository.PooledSequenceGenerator},
+ * so rows inserted by either stack never collide. A sequence value is the first id of a block of
+ * app.id.allocation-size ids. Blocks holding an id that is already taken, like the explicit ids of data.sql, are
+ * skipped.
+ *
+ * Taking an id from the current block is a compare-and-set. When the block runs out, the caller fetches the next one,
+ * and callers racing to do that each get a block of their own, which only leaves gaps.
+ */
+class PooledIds {
+
+    private final int blockSize;
+    private final Supplier<Mono<Long>> nextBlock;
+    private final BiFunction<Long, Long, Mono<Long>> countTaken;
+    private final AtomicReference<Block> current = new AtomicReference<>();
+
+    /**
+     * @param blockSize the increment of the sequence
+     * @param nextBlock fetches the next value of the sequence
+     * @param countTaken counts the rows with an id between its two arguments
+     */
+    PooledIds(int blockSize, Supplier<Mono<Long>> nextBlock, BiFunction<Long, Long, Mono<Long>> countTaken) {
+        this.blockSize = blockSize;
+        this.nextBlock = nextBlock;
+        this.countTaken = countTaken;
+    }
+
+    Mono<Integer> next() {
+        return Mono.defer(() -> {
+            for (Block block = current.get(); block != null && block.next < block.end; block = current.get()){
+                if (current.compareAndSet(block, new Block(block.next + 1, block.end))){
+                    return Mono.just((int) block.next);
+                }
+            }
+            return freeBlock().map(first -> {
+                current.set(new Block(first + 1, first + blockSize));
+                return first.intValue();
+            });
+        });
+    }
+
+    private Mono<Long> freeBlock() {
+        return nextBlock.get().flatMap(first -> countTaken.apply(first, first + blockSize - 1)
+                .flatMap(taken -> taken == 0 ? Mono.just(first) : freeBlock()));
+    }
+
+    private static final class Block {
+
+        final long next;
+        final long end;
+
+        Block(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.reactive;
+
+import java.util.Collection;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import com.example.entity.Account;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC counterpart of {@link com.example.repository.AccountRepository}.
+ */
+public interface ReactiveAccountRepository extends R2dbcRepository<Account, Integer> {
+
+    @Query("select * from account where username = :username")
+    Mono<Account> findByUsername(String username);
+
+    @Query("select count(*) > 0 from account where accountId = :accountId")
+    Mono<Boolean> existsByAccountId(int accountId);
+
+    @Query("select count(*) > 0 from account where username = :username")
+    Mono<Boolean> existsByUsername(String username);
+
+    /**
+     * @return the accountIds among the given ones that exist
+     */
+    @Query("select accountId from account where accountId in (:accountIds)")
+    Flux<Integer> findExistingIds(Collection<Integer> accountIds);
+
+    @Modifying
+    @Query("insert into account (accountId, username, password) values (:accountId, :username, :password)")
+    Mono<Integer> insert(int accountId, String username, String password);
+
+    @Modifying
+    @Query("update account set password = :password where accountId = :accountId")
+    Mono<Integer> updatePassword(int accountId, String password);
+
+    /**
+     * @return the first id of the next block, see {@link PooledIds}
+     */
+    @Query("select next value for account_seq")
+    Mono<Long> nextIdBlock();
+
+    @Query("select count(*) from account where accountId between :first and :last")
+    Mono<Long> countIdsBetween(long first, long last);
+}
@@ -0,0 +1,168 @@
+package com.example.reactive;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import javax.security.sasl.AuthenticationException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.Account;
+import com.example.exception.ClientErrorException;
+import com.example.exception.ConflictException;
+import com.example.index.AccountIdIndex;
+import com.example.index.UsernameBloomFilter;
+import com.example.index.UsernamePrefixIndex;
+import com.example.service.PasswordHasher;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link com.example.service.AccountService} with the same rules, for the reactive
+ * profile.
+ *
+ * Password hashing is CPU work that must not run on an event loop, so it goes to the {@link PasswordHasher}'s bounded
+ * executor just like on the servlet stack, and a full queue still fails with RejectedExecutionException (503).
+ *
+ * The in-memory account indexes are shared with the servlet stack, and registrations here add to them the same way, so
+ * the Bloom filter, the author check of batch posts and username search see every account.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+public class ReactiveAccountService {
+
+    private ReactiveAccountRepository accountRepository;
+    private PasswordHasher passwordHasher;
+    private UsernameBloomFilter usernameBloomFilter;
+    private AccountIdIndex accountIdIndex;
+    private UsernamePrefixIndex usernamePrefixIndex;
+    private PooledIds accountIds;
+    private int defaultSearchLimit = 10;
+    private int maxSearchLimit = 100;
+
+    @Autowired
+    public void setAccountRepository(ReactiveAccountRepository accountRepository){
+        this.accountRepository = accountRepository;
+    }
+
+    @Autowired
+    public void setPasswordHasher(PasswordHasher passwordHasher){
+        this.passwordHasher = passwordHasher;
+    }
+
+    @Autowired
+    public void setUsernameBloomFilter(UsernameBloomFilter usernameBloomFilter){
+        this.usernameBloomFilter = usernameBloomFilter;
+    }
+
+    @Autowired
+    public void setAccountIdIndex(AccountIdIndex accountIdIndex){
+        this.accountIdIndex = accountIdIndex;
+    }
+
+    @Autowired
+    public void setUsernamePrefixIndex(UsernamePrefixIndex usernamePrefixIndex){
+        this.usernamePrefixIndex = usernamePrefixIndex;
+    }
+
+    @Value("${app.accounts.search.default-limit:10}")
+    public void setDefaultSearchLimit(int defaultSearchLimit){
+        this.defaultSearchLimit = defaultSearchLimit;
+    }
+
+    @Value("${app.accounts.search.max-limit:100}")
+    public void setMaxSearchLimit(int maxSearchLimit){
+        this.maxSearchLimit = maxSearchLimit;
+    }
+
+    @Value("${spring.jpa.properties.app.id.allocation-size:50}")
+    public void setAllocationSize(int allocationSize){
+        this.accountIds = new PooledIds(allocationSize, () -> accountRepository.nextIdBlock(),
+                (first, last) -> accountRepository.countIdsBetween(first, last));
+    }
+
+    /**
+     * See {@link com.example.service.AccountService#addNewAccount(Account)}.
+     *
+     * @return the account with its accountId, or ClientErrorException if the basic criteria are not met, or
+     *      ConflictException if the username is already in use
+     */
+    public Mono<Account> addNewAccount(Account account) {
+        String username = account.getUsername();
+        String password = account.getPassword();
+        if (username == null || username.isBlank() || password == null || password.length() < 4){
+            return Mono.error(new ClientErrorException("Registration criteria not met"));
+        }
+        //only ask the DB when the Bloom filter cannot rule the username out
+        Mono<Boolean> taken = !usernameBloomFilter.mightBeTaken(username) ? Mono.just(false)
+                : accountRepository.existsByUsername(username).doOnNext(exists -> {
+                    if (!exists){
+                        usernameBloomFilter.recordFalsePositive();
+                    }
+                });
+        return taken
+                .filter(exists -> !exists)
+                .switchIfEmpty(Mono.error(() -> new ConflictException("Duplicate username.")))
+                .then(Mono.defer(() -> Mono.fromFuture(passwordHasher.submit(() -> passwordHasher.hash(password)))))
+                //the unique constraint settles races
+                .flatMap(hash -> accountIds.next()
+                        .flatMap(accountId -> accountRepository.insert(accountId, username, hash)
+                                .thenReturn(new Account(accountId, username, password))))
+                .onErrorMap(DataIntegrityViolationException.class, e -> new ConflictException("Duplicate username."))
+                .doOnNext(saved -> {
+                    usernameBloomFilter.add(username);
+                    accountIdIndex.add(saved.getAccountId());
+                    usernamePrefixIndex.add(username);
+                });
+    }
+
+    /**
+     * See {@link com.example.service.AccountService#loginWithAccount(Account)}.
+     *
+     * @return the account with its accountId, or javax.security.sasl.AuthenticationException if the login is not
+     *      successful
+     */
+    public Mono<Account> loginWithAccount(Account account) {
+        String password = account.getPassword();
+        Mono<Optional<Account>> stored = account.getUsername() == null ? Mono.just(Optional.empty())
+                : accountRepository.findByUsername(account.getUsername()).map(Optional::of).defaultIfEmpty(Optional.empty());
+        return stored.flatMap(found -> Mono.defer(() -> Mono.fromFuture(passwordHasher.submit(() -> {
+                    String storedPassword = found.map(Account::getPassword).orElse(null);
+                    if (!passwordHasher.verify(password, storedPassword)){
+                        throw new CompletionException(new AuthenticationException("Login unsuccessful."));
+                    }
+                    //a legacy or weaker hash is replaced, hashed on the same executor
+                    return passwordHasher.needsRehash(storedPassword) ? Optional.of(passwordHasher.hash(password))
+                            : Optional.<String>empty();
+                })))
+                .flatMap(rehash -> {
+                    Account loggedIn = new Account(found.get().getAccountId(), found.get().getUsername(), password);
+                    return rehash.isPresent()
+                            ? accountRepository.updatePassword(loggedIn.getAccountId(), rehash.get()).thenReturn(loggedIn)
+                            : Mono.just(loggedIn);
+                }));
+    }
+
+    /**
+     * See {@link com.example.service.AccountService#searchUsernames(String, Integer)}, served from the same
+     * {@link UsernamePrefixIndex}.
+     *
+     * @return up to limit usernames starting with prefix, in sorted order, or ClientErrorException if the prefix is
+     *      empty or the limit is invalid
+     */
+    public Mono<List<String>> searchUsernames(String prefix, Integer limit) {
+        if (prefix == null || prefix.isEmpty()){
+            return Mono.error(new ClientErrorException("prefix must not be empty"));
+        }
+        int searchLimit = limit == null ? defaultSearchLimit : limit;
+        if (searchLimit < 1 || searchLimit > maxSearchLimit){
+            return Mono.error(new ClientErrorException("limit must be between 1 and " + maxSearchLimit));
+        }
+        return Mono.just(usernamePrefixIndex.search(prefix, searchLimit));
+    }
+}
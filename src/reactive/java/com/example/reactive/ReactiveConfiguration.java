@@ -0,0 +1,84 @@
+package com.example.reactive;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.data.relational.core.mapping.NamingStrategy;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Infrastructure of the reactive profile, active when the app runs as a reactive web application
+ * (application-reactive.properties).
+ *
+ * The JPA stack keeps running next to R2DBC on purpose, limited to what the shared caches and indexes need. It owns
+ * the schema: Hibernate creates the id sequences, then data.sql is run through JDBC as on the servlet stack. The
+ * {@link com.example.service.MessageListener}s fill themselves from the JPA repositories at startup, and
+ * {@link com.example.index.AccountStatsIndex} still reads through them after a delete, on a boundedElastic thread.
+ * Requests never use it: the servlet services are left out of the reactive profile, and every request goes through
+ * R2DBC. Its Hikari pool is sized for that in application-reactive.properties. Both stacks reach the same in-memory H2
+ * database, on H2 1.4.200 as r2dbc-h2 requires (see the reactive profile in pom.xml).
+ *
+ * Spring Boot backs off from the JDBC DataSource once an R2DBC ConnectionFactory is configured, which would leave the
+ * shared JPA repositories, and every cache and index built on them, without a database. The DataSource is declared
+ * here instead, from the same spring.datasource properties the servlet stack uses. With both Spring Data modules on
+ * the classpath, each one only scans the package of its own repositories.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+@EnableJpaRepositories(basePackages = "com.example.repository")
+@EnableR2dbcRepositories(basePackages = "com.example.reactive")
+public class ReactiveConfiguration {
+
+    /**
+     * Maps properties to the column of the same name, like the physical naming strategy of the JPA side, instead of
+     * snake_case.
+     */
+    @Bean
+    public NamingStrategy namingStrategy() {
+        return new NamingStrategy() {
+            @Override
+            public String getColumnName(RelationalPersistentProperty property) {
+                return property.getName();
+            }
+        };
+    }
+
+    /**
+     * Netty's event loops rather than Tomcat, which is on the classpath for the servlet stack and would otherwise be
+     * picked for reactive requests too.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Runs data.sql through JDBC. With a ConnectionFactory present Spring Boot would run it through R2DBC instead,
+     * outside the ordering that spring.jpa.defer-datasource-initialization gives the JDBC initializer.
+     */
+    @Bean
+    public DataSourceScriptDatabaseInitializer dataSourceScriptDatabaseInitializer(DataSource dataSource) {
+        DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+        settings.setDataLocations(List.of("optional:classpath:data.sql"));
+        return new DataSourceScriptDatabaseInitializer(dataSource, settings);
+    }
+}
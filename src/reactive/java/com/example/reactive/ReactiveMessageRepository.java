@@ -0,0 +1,95 @@
+package com.example.reactive;
+
+import java.util.Collection;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import com.example.entity.Message;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC counterpart of {@link com.example.repository.MessageRepository}. Every query is spelled out, the entity only
+ * carries JPA mapping annotations, and each Flux is read from the driver as the subscriber requests more rows.
+ */
+public interface ReactiveMessageRepository extends R2dbcRepository<Message, Integer> {
+
+    @Query("select * from message order by messageId")
+    Flux<Message> findAllOrderByMessageId();
+
+    @Query("select * from message where messageId = :messageId")
+    Mono<Message> findByMessageId(int messageId);
+
+    @Query("select * from message where messageId in (:messageIds)")
+    Flux<Message> findAllByMessageIdIn(Collection<Integer> messageIds);
+
+    @Query("select * from message where postedBy = :postedBy order by messageId")
+    Flux<Message> findByPostedByOrderByMessageId(int postedBy);
+
+    /**
+     * @return at most limit messages with a messageId above afterId, in messageId order
+     */
+    @Query("select * from message where messageId > :afterId order by messageId limit :limit")
+    Flux<Message> findPage(int afterId, int limit);
+
+    /**
+     * @return at most limit messages by postedBy with a messageId above afterId, in messageId order
+     */
+    @Query("select * from message where postedBy = :postedBy and messageId > :afterId order by messageId limit :limit")
+    Flux<Message> findPageByPostedBy(int postedBy, int afterId, int limit);
+
+    /**
+     * @return messages with a timePostedEpoch at or after since and before until, by timePostedEpoch then messageId
+     */
+    @Query("select * from message where timePostedEpoch >= :since and timePostedEpoch < :until "
+            + "order by timePostedEpoch, messageId")
+    Flux<Message> findByTimePostedRange(long since, long until);
+
+    /**
+     * @return messages by postedBy with a timePostedEpoch at or after since and before until, by timePostedEpoch then
+     *      messageId
+     */
+    @Query("select * from message where postedBy = :postedBy and timePostedEpoch >= :since "
+            + "and timePostedEpoch < :until order by timePostedEpoch, messageId")
+    Flux<Message> findByPostedByAndTimePostedRange(int postedBy, long since, long until);
+
+    @Modifying
+    @Query("insert into message (messageId, postedBy, messageText, timePostedEpoch) "
+            + "values (:messageId, :postedBy, :messageText, :timePostedEpoch)")
+    Mono<Integer> insert(int messageId, int postedBy, String messageText, Long timePostedEpoch);
+
+    /**
+     * Reads the message and locks its row until the surrounding transaction ends, so that an update or delete in the
+     * same transaction knows the row it changes.
+     *
+     * @return the message, empty if there is no such message
+     */
+    @Query("select * from message where messageId = :messageId for update")
+    Mono<Message> findLockedByMessageId(int messageId);
+
+    /**
+     * @return number of rows updated, 1 or 0
+     */
+    @Modifying
+    @Query("update message set messageText = :messageText where messageId = :messageId")
+    Mono<Integer> updateMessageText(int messageId, String messageText);
+
+    /**
+     * @return number of rows deleted, 1 or 0
+     */
+    @Modifying
+    @Query("delete from message where messageId = :messageId")
+    Mono<Integer> deleteByMessageId(int messageId);
+
+    /**
+     * @return the first id of the next block, see {@link PooledIds}
+     */
+    @Query("select next value for message_seq")
+    Mono<Long> nextIdBlock();
+
+    @Query("select count(*) from message where messageId between :first and :last")
+    Mono<Long> countIdsBetween(long first, long last);
+}
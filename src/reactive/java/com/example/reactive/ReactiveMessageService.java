@@ -0,0 +1,412 @@
+package com.example.reactive;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.cache.RecentFeed;
+import com.example.cache.RecentTimeWindow;
+import com.example.entity.Message;
+import com.example.exception.ClientErrorException;
+import com.example.index.AccountStats;
+import com.example.index.AccountStatsIndex;
+import com.example.index.MessageTextIndex;
+import com.example.ratelimit.PostingRateLimiter;
+import com.example.service.MessageBatchResult;
+import com.example.service.MessageListener;
+import com.example.service.MessagePage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking counterpart of {@link com.example.service.MessageService} with the same rules, for the reactive
+ * profile. Nothing here blocks the calling thread, every result is a Mono or a Flux of rows read through R2DBC.
+ *
+ * Writes tell the same {@link MessageListener}s as the servlet stack once they are done, so the recent feed, the
+ * recent time window, the text index and the account statistics keep serving reads from memory, and posts and edits
+ * take tokens from the same {@link PostingRateLimiter} buckets. The listeners are told on a boundedElastic thread,
+ * never on the event loop that completed the write, since some of them read through the blocking JPA side.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+public class ReactiveMessageService {
+
+    private ReactiveMessageRepository messageRepository;
+    private ReactiveAccountRepository accountRepository;
+    private RecentFeed recentFeed;
+    private RecentTimeWindow recentTimeWindow;
+    private MessageTextIndex messageTextIndex;
+    private AccountStatsIndex accountStatsIndex;
+    private PostingRateLimiter postingRateLimiter;
+    private List<MessageListener> messageListeners = List.of();
+    private TransactionalOperator transactionalOperator;
+    private PooledIds messageIds;
+    private int maxBatchSize = 10000;
+    private int defaultPageLimit = 50;
+    private int maxPageLimit = 1000;
+
+    @Autowired
+    public void setMessageRepository(ReactiveMessageRepository messageRepository){
+        this.messageRepository = messageRepository;
+    }
+
+    @Autowired
+    public void setAccountRepository(ReactiveAccountRepository accountRepository){
+        this.accountRepository = accountRepository;
+    }
+
+    @Autowired
+    public void setRecentFeed(RecentFeed recentFeed){
+        this.recentFeed = recentFeed;
+    }
+
+    @Autowired
+    public void setRecentTimeWindow(RecentTimeWindow recentTimeWindow){
+        this.recentTimeWindow = recentTimeWindow;
+    }
+
+    @Autowired
+    public void setMessageTextIndex(MessageTextIndex messageTextIndex){
+        this.messageTextIndex = messageTextIndex;
+    }
+
+    @Autowired
+    public void setAccountStatsIndex(AccountStatsIndex accountStatsIndex){
+        this.accountStatsIndex = accountStatsIndex;
+    }
+
+    @Autowired
+    public void setPostingRateLimiter(PostingRateLimiter postingRateLimiter){
+        this.postingRateLimiter = postingRateLimiter;
+    }
+
+    @Autowired
+    public void setMessageListeners(List<MessageListener> messageListeners){
+        this.messageListeners = messageListeners;
+    }
+
+    @Autowired
+    public void setTransactionManager(ReactiveTransactionManager transactionManager){
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    @Value("${spring.jpa.properties.app.id.allocation-size:50}")
+    public void setAllocationSize(int allocationSize){
+        this.messageIds = new PooledIds(allocationSize, () -> messageRepository.nextIdBlock(),
+                (first, last) -> messageRepository.countIdsBetween(first, last));
+    }
+
+    @Value("${app.messages.batch.max-size:10000}")
+    public void setMaxBatchSize(int maxBatchSize){
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Value("${app.messages.page.default-limit:50}")
+    public void setDefaultPageLimit(int defaultPageLimit){
+        this.defaultPageLimit = defaultPageLimit;
+    }
+
+    @Value("${app.messages.page.max-limit:1000}")
+    public void setMaxPageLimit(int maxPageLimit){
+        this.maxPageLimit = maxPageLimit;
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#addMessage(Message)}.
+     *
+     * @return the message with its messageId, or ClientErrorException if the criteria are not met, or
+     *      TooManyRequestsException if the author is over the rate limit
+     */
+    public Mono<Message> addMessage(Message message) {
+        if (message.getMessageText() == null || message.getMessageText().isBlank()
+                || message.getMessageText().length() > 255 || message.getPostedBy() == null){
+            return Mono.error(new ClientErrorException("Message not created"));
+        }
+        //the author is checked before its bucket is touched, so no bucket is made for an account that does not exist
+        return accountRepository.existsByAccountId(message.getPostedBy())
+                .filter(exists -> exists)
+                .switchIfEmpty(Mono.error(() -> new ClientErrorException("Message not created")))
+                .then(acquire(message.getPostedBy()))
+                .then(messageIds.next())
+                //the foreign key catches an author that just vanished
+                .flatMap(messageId -> messageRepository.insert(messageId, message.getPostedBy(),
+                        message.getMessageText(), message.getTimePostedEpoch())
+                        .thenReturn(new Message(messageId, message.getPostedBy(), message.getMessageText(),
+                                message.getTimePostedEpoch())))
+                .onErrorMap(DataIntegrityViolationException.class, e -> new ClientErrorException("Message not created"))
+                .flatMap(created -> tell(() -> messageListeners.forEach(listener -> listener.messageCreated(
+                        copyOf(created)))).thenReturn(created));
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#addMessages(List)}. Authors are checked with one IN query, and the
+     * valid items are inserted one after another in a single R2DBC transaction.
+     *
+     * @return one result per message, in request order, or ClientErrorException if the batch is empty or larger than
+     *      app.messages.batch.max-size
+     */
+    public Mono<List<MessageBatchResult>> addMessages(List<Message> messages) {
+        if (messages.isEmpty() || messages.size() > maxBatchSize){
+            return Mono.error(new ClientErrorException("Batch must hold between 1 and " + maxBatchSize + " messages"));
+        }
+        Set<Integer> authors = new HashSet<>();
+        for (Message message : messages){
+            if (message != null && message.getPostedBy() != null){
+                authors.add(message.getPostedBy());
+            }
+        }
+        Mono<Set<Integer>> existing = authors.isEmpty() ? Mono.just(Set.of())
+                : accountRepository.findExistingIds(authors).collect(HashSet::new, Set::add);
+        return existing.flatMap(foundAuthors -> {
+            MessageBatchResult[] results = new MessageBatchResult[messages.size()];
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < messages.size(); i++){
+                Message message = messages.get(i);
+                if (message == null || message.getMessageText() == null || message.getMessageText().isBlank()
+                        || message.getMessageText().length() > 255){
+                    results[i] = MessageBatchResult.rejected("Message text must be 1 to 255 characters");
+                }else if (!foundAuthors.contains(message.getPostedBy())){
+                    results[i] = MessageBatchResult.rejected("postedBy does not refer to an existing account");
+                }else if (!postingRateLimiter.tryAcquire(PostingRateLimiter.accountKey(message.getPostedBy()))){
+                    results[i] = MessageBatchResult.limited("Too many requests, try again later.");
+                }else{
+                    positions.add(i);
+                }
+            }
+            return Flux.fromIterable(positions)
+                    .concatMap(position -> {
+                        Message message = messages.get(position);
+                        return messageIds.next().flatMap(messageId -> messageRepository.insert(messageId,
+                                message.getPostedBy(), message.getMessageText(), message.getTimePostedEpoch())
+                                .thenReturn(new Message(messageId, message.getPostedBy(), message.getMessageText(),
+                                        message.getTimePostedEpoch())));
+                    })
+                    .collectList()
+                    .as(transactionalOperator::transactional)
+                    .flatMap(created -> {
+                        for (int i = 0; i < created.size(); i++){
+                            results[positions.get(i)] = MessageBatchResult.created(created.get(i));
+                        }
+                        return tell(() -> created.forEach(message -> messageListeners.forEach(
+                                listener -> listener.messageCreated(copyOf(message))))).thenReturn(List.of(results));
+                    });
+        });
+    }
+
+    /**
+     * @return every message in messageId order, read as the subscriber asks for more
+     */
+    public Flux<Message> getAllMessages() {
+        return messageRepository.findAllOrderByMessageId();
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#getMessagesPage(String, Integer)}.
+     *
+     * @return page of messages with the cursor for the next page, or ClientErrorException if the cursor or limit is
+     *      invalid
+     */
+    public Mono<MessagePage> getMessagesPage(String after, Integer limit) {
+        return Mono.fromCallable(() -> MessagePage.decodeCursor(after))
+                .flatMap(afterId -> resolvePageLimit(limit)
+                        .flatMap(pageLimit -> messageRepository.findPage(afterId, pageLimit + 1).collectList()
+                                .map(messages -> MessagePage.fromLookahead(messages, pageLimit))));
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#getRecentMessages(int)}, served from the same recent feed.
+     */
+    public Flux<Message> getRecentMessages(int recent) {
+        if (recent < 1 || recent > recentFeed.getCapacity()){
+            return Flux.error(new ClientErrorException("recent must be between 1 and " + recentFeed.getCapacity()));
+        }
+        return Flux.fromIterable(recentFeed.getRecent(recent));
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#getMessagesInTimeRange(Long, Long)}, served from the same recent
+     * time window when the range starts inside it.
+     *
+     * @return messages posted in the range, ordered by timePostedEpoch and then messageId, or ClientErrorException if
+     *      since is after until
+     */
+    public Flux<Message> getMessagesInTimeRange(Long since, Long until) {
+        return timeRange(since, until, null);
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#searchMessages(String, Integer)}, matched against the same text
+     * index, with the messages of the page read in one IN query.
+     *
+     * @return up to limit matching messages, newest first, or ClientErrorException if the query holds no word or the
+     *      limit is invalid
+     */
+    public Flux<Message> searchMessages(String query, Integer limit) {
+        if (query == null || MessageTextIndex.tokenize(query).isEmpty()){
+            return Flux.error(new ClientErrorException("q must hold at least one word"));
+        }
+        return resolvePageLimit(limit).flatMapMany(pageLimit -> {
+            int[] messageIds = messageTextIndex.search(query, pageLimit);
+            if (messageIds.length == 0){
+                return Flux.empty();
+            }
+            List<Integer> ids = new ArrayList<>(messageIds.length);
+            for (int messageId : messageIds){
+                ids.add(messageId);
+            }
+            //keep the ranking of the index, skipping messages deleted since
+            return messageRepository.findAllByMessageIdIn(ids).collectMap(Message::getMessageId)
+                    .flatMapIterable(found -> ids.stream().map(found::get).filter(message -> message != null)
+                            .collect(Collectors.toList()));
+        });
+    }
+
+    /**
+     * @return the message identified by messageId, empty if there is no such message
+     */
+    public Mono<Message> getMessageById(int messageId) {
+        return messageRepository.findByMessageId(messageId);
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#deleteMessageById(int)}.
+     *
+     * @return number of rows deleted, 1 or 0
+     */
+    public Mono<Integer> deleteMessageById(int messageId) {
+        //lock and read the row, empty means there is nothing to delete
+        return messageRepository.findLockedByMessageId(messageId)
+                .flatMap(deleted -> messageRepository.deleteByMessageId(messageId).thenReturn(deleted))
+                .as(transactionalOperator::transactional)
+                .flatMap(deleted -> tell(() -> messageListeners.forEach(listener -> listener.messageDeleted(deleted)))
+                        .thenReturn(deleted))
+                .map(deleted -> 1)
+                .defaultIfEmpty(0);
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#updateMessage(int, Message)}. There is no message cache to tell
+     * the author beforehand, so the author's token is taken once the locked read returns postedBy, and a refused edit
+     * rolls back before the row is changed.
+     *
+     * @return number of rows updated, 1, or ClientErrorException if the criteria are not met, or
+     *      TooManyRequestsException if the author is over the rate limit
+     */
+    public Mono<Integer> updateMessage(int messageId, Message newMessage) {
+        String text = newMessage.getMessageText();
+        if (text == null || text.isBlank() || text.length() > 255){
+            return Mono.error(new ClientErrorException("Message not updated"));
+        }
+        //lock and read the row, empty means the messageId does not exist, charge its author, then update the message
+        return messageRepository.findLockedByMessageId(messageId)
+                .flatMap(old -> acquire(old.getPostedBy())
+                        .then(messageRepository.updateMessageText(messageId, text))
+                        .thenReturn(old))
+                .as(transactionalOperator::transactional)
+                .switchIfEmpty(Mono.error(() -> new ClientErrorException("Message not updated")))
+                .flatMap(old -> {
+                    Message updated = new Message(old.getMessageId(), old.getPostedBy(), text, old.getTimePostedEpoch());
+                    return tell(() -> messageListeners.forEach(listener -> listener.messageUpdated(old, updated)));
+                })
+                .thenReturn(1);
+    }
+
+    /**
+     * @return every message written by accountId in messageId order, read as the subscriber asks for more
+     */
+    public Flux<Message> getAllMessagesByAccountId(int accountId) {
+        return messageRepository.findByPostedByOrderByMessageId(accountId);
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#getMessagesPageByAccountId(int, String, Integer)}.
+     */
+    public Mono<MessagePage> getMessagesPageByAccountId(int accountId, String after, Integer limit) {
+        return Mono.fromCallable(() -> MessagePage.decodeCursor(after))
+                .flatMap(afterId -> resolvePageLimit(limit)
+                        .flatMap(pageLimit -> messageRepository.findPageByPostedBy(accountId, afterId, pageLimit + 1)
+                                .collectList()
+                                .map(messages -> MessagePage.fromLookahead(messages, pageLimit))));
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#getMessagesByAccountIdInTimeRange(int, Long, Long)}.
+     */
+    public Flux<Message> getMessagesByAccountIdInTimeRange(int accountId, Long since, Long until) {
+        return timeRange(since, until, accountId);
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#getAccountStats(int)}.
+     */
+    public Mono<AccountStats> getAccountStats(int accountId) {
+        return Mono.just(accountStatsIndex.getStats(accountId));
+    }
+
+    /**
+     * See {@link com.example.service.MessageService#getTopPosters(Integer)}.
+     *
+     * @return statistics of the top posters, most messages first, or ClientErrorException if the limit is invalid
+     */
+    public Mono<List<AccountStats>> getTopPosters(Integer limit) {
+        return resolvePageLimit(limit).map(accountStatsIndex::getTopPosters);
+    }
+
+    private Flux<Message> timeRange(Long since, Long until, Integer postedBy) {
+        if (since != null && until != null && since > until){
+            return Flux.error(new ClientErrorException("since must not be after until"));
+        }
+        long from = since == null ? Long.MIN_VALUE : since;
+        long to = until == null ? Long.MAX_VALUE : until;
+        List<Message> messages = recentTimeWindow.getRange(from, to, postedBy);
+        if (messages != null){
+            return Flux.fromIterable(messages);
+        }
+        return postedBy == null ? messageRepository.findByTimePostedRange(from, to)
+                : messageRepository.findByPostedByAndTimePostedRange(postedBy, from, to);
+    }
+
+    /**
+     * Takes a token from the rate limit bucket of the author when subscribed, and fails with TooManyRequestsException
+     * if the bucket is empty.
+     */
+    private Mono<Void> acquire(Integer accountId) {
+        return accountId == null ? Mono.empty()
+                : Mono.fromRunnable(() -> postingRateLimiter.acquire(PostingRateLimiter.accountKey(accountId)));
+    }
+
+    /**
+     * Runs a listener event on a boundedElastic thread when subscribed. {@link AccountStatsIndex#messageDeleted} may
+     * read the database through JPA, which would stall every connection served by the event loop.
+     */
+    private Mono<Void> tell(Runnable event) {
+        return Mono.fromRunnable(event).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private Mono<Integer> resolvePageLimit(Integer limit) {
+        if (limit == null){
+            return Mono.just(defaultPageLimit);
+        }
+        if (limit < 1 || limit > maxPageLimit){
+            return Mono.error(new ClientErrorException("limit must be between 1 and " + maxPageLimit));
+        }
+        return Mono.just(limit);
+    }
+
+    private static Message copyOf(Message message) {
+        return new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                message.getTimePostedEpoch());
+    }
+}
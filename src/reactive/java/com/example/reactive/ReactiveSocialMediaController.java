@@ -0,0 +1,234 @@
+package com.example.reactive;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.cache.ChangeVersions;
+import com.example.controller.SocialMediaController;
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.exception.ClientErrorException;
+import com.example.index.AccountStats;
+import com.example.service.MessageBatchResult;
+import com.example.service.MessagePage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link SocialMediaController}, serving the same routes with the same status codes for the
+ * reactive profile. Failures are the same exceptions, answered by {@link com.example.exception.ExceptionController}.
+ *
+ * List endpoints return a Flux straight from the R2DBC repository. The JSON array, or the newline-delimited JSON with
+ * Accept: application/x-ndjson, is written as rows arrive, and rows are only read as fast as the client takes the
+ * response, so a slow reader holds neither a thread nor the whole list. Keyset pages are small and bounded by the
+ * limit, so they are collected to compute the next cursor header first.
+ *
+ * The admin endpoints, metrics and the write-behind posting mode remain servlet-only.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+public class ReactiveSocialMediaController {
+
+    private ReactiveAccountService accountService;
+    private ReactiveMessageService messageService;
+    private ChangeVersions changeVersions;
+
+    @Autowired
+    public void setAccountService(ReactiveAccountService accountService){
+        this.accountService = accountService;
+    }
+
+    @Autowired
+    public void setMessageService(ReactiveMessageService messageService){
+        this.messageService = messageService;
+    }
+
+    @Autowired
+    public void setChangeVersions(ChangeVersions changeVersions){
+        this.changeVersions = changeVersions;
+    }
+
+    /**
+     * See {@link SocialMediaController#userRegistration(Account)}.
+     */
+    @PostMapping("/register")
+    public Mono<Account> userRegistration(@RequestBody Account account) {
+        return accountService.addNewAccount(account);
+    }
+
+    /**
+     * See {@link SocialMediaController#userLogin(Account)}.
+     */
+    @PostMapping("/login")
+    public Mono<Account> userLogin(@RequestBody Account account) {
+        return accountService.loginWithAccount(account);
+    }
+
+    /**
+     * See {@link SocialMediaController#searchUsernames(String, Integer)}.
+     */
+    @GetMapping("/accounts/search")
+    public Mono<List<String>> searchUsernames(@RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Integer limit) {
+        return accountService.searchUsernames(prefix, limit);
+    }
+
+    /**
+     * See {@link SocialMediaController#postNewMessage(Message)}.
+     */
+    @PostMapping("/messages")
+    public Mono<Message> postNewMessage(@RequestBody Message message) {
+        return messageService.addMessage(message);
+    }
+
+    /**
+     * See {@link SocialMediaController#postNewMessages(List)}.
+     */
+    @PostMapping("/messages/batch")
+    public Mono<List<MessageBatchResult>> postNewMessages(@RequestBody List<Message> messages) {
+        return messageService.addMessages(messages);
+    }
+
+    /**
+     * See {@link SocialMediaController#getAllMessages(String, Integer, Long, Long)}.
+     */
+    @GetMapping("/messages")
+    public Mono<ResponseEntity<Flux<Message>>> getAllMessages(@RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long until) {
+        if (since != null || until != null){
+            return requireNoPage(after, limit).thenReturn(ResponseEntity.status(200)
+                    .body(messageService.getMessagesInTimeRange(since, until)));
+        }
+        if (after == null && limit == null){
+            return Mono.just(ResponseEntity.status(200).body(messageService.getAllMessages()));
+        }
+        return messageService.getMessagesPage(after, limit).map(ReactiveSocialMediaController::pageResponse);
+    }
+
+    /**
+     * See {@link SocialMediaController#searchMessages(String, Integer)}.
+     */
+    @GetMapping("/messages/search")
+    public Flux<Message> searchMessages(@RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit) {
+        return messageService.searchMessages(q, limit);
+    }
+
+    /**
+     * See {@link SocialMediaController#getRecentMessages(int)}.
+     */
+    @GetMapping(value = "/messages", params = "recent")
+    public Flux<Message> getRecentMessages(@RequestParam int recent) {
+        return messageService.getRecentMessages(recent);
+    }
+
+    /**
+     * See {@link SocialMediaController#streamAllMessages()}. Each message goes out as its own line as soon as it is
+     * read.
+     */
+    @GetMapping(value = "/messages", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Message> streamAllMessages() {
+        return messageService.getAllMessages();
+    }
+
+    /**
+     * See {@link SocialMediaController#getMessageById(int, org.springframework.web.context.request.WebRequest)}, an
+     * unknown messageId responds 200 with an empty body.
+     */
+    @GetMapping("/messages/{messageId}")
+    public Mono<Message> getMessageById(@PathVariable int messageId, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(changeVersions.messageETag(messageId))){
+            return Mono.empty();
+        }
+        return messageService.getMessageById(messageId);
+    }
+
+    /**
+     * See {@link SocialMediaController#deleteMessageById(int)}.
+     */
+    @DeleteMapping("/messages/{messageId}")
+    public Mono<ResponseEntity<Integer>> deleteMessageById(@PathVariable int messageId) {
+        return messageService.deleteMessageById(messageId)
+                .map(rows -> rows == 0 ? ResponseEntity.status(200).<Integer>build() : ResponseEntity.status(200).body(rows));
+    }
+
+    /**
+     * See {@link SocialMediaController#patchMessageById(int, Message)}.
+     */
+    @PatchMapping("/messages/{messageId}")
+    public Mono<Integer> patchMessageById(@PathVariable int messageId, @RequestBody Message message) {
+        return messageService.updateMessage(messageId, message);
+    }
+
+    /**
+     * See {@link SocialMediaController#getMessagesByAccountId(int, String, Integer, Long, Long,
+     * org.springframework.web.context.request.WebRequest)}.
+     */
+    @GetMapping("/accounts/{accountId}/messages")
+    public Mono<ResponseEntity<Flux<Message>>> getMessagesByAccountId(@PathVariable int accountId,
+            @RequestParam(required = false) String after, @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long since, @RequestParam(required = false) Long until,
+            ServerWebExchange exchange) {
+        if (exchange.checkNotModified(changeVersions.accountETag(accountId))){
+            return Mono.empty();
+        }
+        if (since != null || until != null){
+            return requireNoPage(after, limit).thenReturn(ResponseEntity.status(200)
+                    .body(messageService.getMessagesByAccountIdInTimeRange(accountId, since, until)));
+        }
+        if (after == null && limit == null){
+            return Mono.just(ResponseEntity.status(200).body(messageService.getAllMessagesByAccountId(accountId)));
+        }
+        return messageService.getMessagesPageByAccountId(accountId, after, limit)
+                .map(ReactiveSocialMediaController::pageResponse);
+    }
+
+    /**
+     * See {@link SocialMediaController#getAccountStats(int)}.
+     */
+    @GetMapping("/accounts/{accountId}/stats")
+    public Mono<AccountStats> getAccountStats(@PathVariable int accountId) {
+        return messageService.getAccountStats(accountId);
+    }
+
+    /**
+     * See {@link SocialMediaController#getTopPosters(Integer)}.
+     */
+    @GetMapping("/accounts/top-posters")
+    public Mono<List<AccountStats>> getTopPosters(@RequestParam(required = false) Integer limit) {
+        return messageService.getTopPosters(limit);
+    }
+
+    /**
+     * Time ranges are returned whole, in time order, which keyset pages in messageId order cannot continue.
+     */
+    private static Mono<Void> requireNoPage(String after, Integer limit) {
+        if (after != null || limit != null){
+            return Mono.error(new ClientErrorException("since and until cannot be combined with after or limit"));
+        }
+        return Mono.empty();
+    }
+
+    private static ResponseEntity<Flux<Message>> pageResponse(MessagePage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(200);
+        if (page.getNextCursor() != null){
+            response.header(SocialMediaController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(Flux.fromIterable(page.getMessages()));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AccountSearchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/search?prefix=testuser for the accounts of data.sql
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the four usernames in sorted order
+     */
+    @Test
+    public void searchIndexedAtStartup() throws IOException, InterruptedException {
+        assertUsernames(search("testuser", null), "testuser1", "testuser2", "testuser3", "testuser4");
+        assertUsernames(search("testuser3", null), "testuser3");
+        assertUsernames(search("TestUser", null));
+        assertUsernames(search("nobody", null));
+    }
+
+    /**
+     * Sending POST localhost:8080/register, then searching for the new username and with a limit
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the new username among the stored ones in sorted order, at most limit of them
+     */
+    @Test
+    public void searchFindsRegisteredAccounts() throws IOException, InterruptedException {
+        register("testuser0");
+        register("tester");
+
+        assertUsernames(search("test", 3), "tester", "testuser0", "testuser1");
+        assertUsernames(search("testuser", null), "testuser0", "testuser1", "testuser2", "testuser3", "testuser4");
+        assertUsernames(search("teste", null), "tester");
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/search without a prefix, or with a limit out of range
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchWithoutPrefixRejected() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, search("", null).statusCode());
+        Assertions.assertEquals(400, search("test", 0).statusCode());
+        Assertions.assertEquals(400, search("test", 1000).statusCode());
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/search"))
+                .build();
+        Assertions.assertEquals(400, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private void assertUsernames(HttpResponse<String> response, String... expected) throws IOException {
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        Assertions.assertArrayEquals(expected, objectMapper.readValue(response.body(), String[].class));
+    }
+
+    private HttpResponse<String> search(String prefix, Integer limit) throws IOException, InterruptedException {
+        String uri = "http://localhost:8080/accounts/search?prefix=" + URLEncoder.encode(prefix, StandardCharsets.UTF_8)
+                + (limit == null ? "" : "&limit=" + limit);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void register(String username) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+    }
+}
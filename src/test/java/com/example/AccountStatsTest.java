@@ -0,0 +1,140 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.example.index.AccountStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AccountStatsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/{accountId}/stats and GET localhost:8080/accounts/top-posters for the 
+     * messages of data.sql
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one message for the authors, none for the others, authors ranked by accountId on the tie
+     */
+    @Test
+    public void statsCountedAtStartup() throws IOException, InterruptedException {
+        assertStats(get("/accounts/9999/stats"), new AccountStats(9999, 1, 1669947792L, 1669947792L));
+        assertStats(get("/accounts/9998/stats"), new AccountStats(9998, 0, null, null));
+        assertStats(get("/accounts/12345/stats"), new AccountStats(12345, 0, null, null));
+        assertTopPosters(get("/accounts/top-posters"), new AccountStats(9996, 1, 1669947792L, 1669947792L), 
+                new AccountStats(9997, 1, 1669947792L, 1669947792L), new AccountStats(9999, 1, 1669947792L, 1669947792L));
+    }
+
+    /**
+     * Sending POST localhost:8080/messages for one account, then DELETE localhost:8080/messages/{messageId} for the 
+     * first and the last of them
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: counts and times follow every create and delete, the account leads the leaderboard while it 
+     *      has the most messages
+     */
+    @Test
+    public void statsFollowCreatesAndDeletes() throws IOException, InterruptedException {
+        Message first = post(9998, 100L);
+        Message last = post(9998, 300L);
+        Message middle = post(9998, 200L);
+        assertStats(get("/accounts/9998/stats"), new AccountStats(9998, 3, 100L, 300L));
+        assertTopPosters(get("/accounts/top-posters?limit=1"), new AccountStats(9998, 3, 100L, 300L));
+
+        delete(first.getMessageId());
+        assertStats(get("/accounts/9998/stats"), new AccountStats(9998, 2, 200L, 300L));
+        delete(last.getMessageId());
+        assertStats(get("/accounts/9998/stats"), new AccountStats(9998, 1, 200L, 200L));
+        delete(middle.getMessageId());
+        assertStats(get("/accounts/9998/stats"), new AccountStats(9998, 0, null, null));
+        assertTopPosters(get("/accounts/top-posters?limit=1"), new AccountStats(9996, 1, 1669947792L, 1669947792L));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/top-posters with a limit out of range
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void topPostersLimitRejected() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, get("/accounts/top-posters?limit=0").statusCode());
+        Assertions.assertEquals(400, get("/accounts/top-posters?limit=100000").statusCode());
+    }
+
+    private void assertStats(HttpResponse<String> response, AccountStats expected) throws IOException {
+        assertJson(response, expected);
+    }
+
+    private void assertTopPosters(HttpResponse<String> response, AccountStats... expected) throws IOException {
+        assertJson(response, expected);
+    }
+
+    private void assertJson(HttpResponse<String> response, Object expected) throws IOException {
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        Assertions.assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(expected)), 
+                objectMapper.readTree(response.body()));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Message post(int postedBy, long timePostedEpoch) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        new Message(postedBy, "stats message", timePostedEpoch))))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+
+    private void delete(int messageId) throws IOException, InterruptedException {
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("servlet")
+public class ConditionalGetTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999 twice, the second time with the ETag of the first in If-None-Match
+     *
+     * Expected Response:
+     *  Status Code: 304
+     *  Response Body: empty, with the same ETag, and the message read from the database only once
+     */
+    @Test
+    public void unchangedMessageNotModified() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages/9999", null);
+        Assertions.assertEquals(200, first.statusCode());
+        String eTag = first.headers().firstValue("ETag").orElseThrow();
+        Assertions.assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""), eTag);
+
+        HttpResponse<String> second = get("/messages/9999", eTag);
+        Assertions.assertEquals(304, second.statusCode());
+        Assertions.assertEquals("", second.body());
+        Assertions.assertEquals(eTag, second.headers().firstValue("ETag").orElse(null));
+        String metrics = get("/admin/metrics", null).body();
+        Assertions.assertTrue(metrics.contains("repository_invocations_seconds_count{repository=\"MessageRepository\","
+                + "method=\"findById\"} 1\n"), metrics);
+    }
+
+    /**
+     * Sending PATCH localhost:8080/messages/9999, then GET localhost:8080/messages/9999 with the ETag from before the
+     * update
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the updated message, with a new ETag
+     */
+    @Test
+    public void updatedMessageChangesETag() throws IOException, InterruptedException {
+        String eTag = get("/messages/9999", null).headers().firstValue("ETag").orElseThrow();
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> response = get("/messages/9999", eTag);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertNotEquals(eTag, response.headers().firstValue("ETag").orElse(null));
+        Assertions.assertEquals(new Message(9999, 9999, "updated message", 1669947792L),
+                objectMapper.readValue(response.body(), Message.class));
+    }
+
+    /**
+     * Sending POST localhost:8080/messages for account 9999, then GET localhost:8080/accounts/{accountId}/messages
+     * for accounts 9999 and 9997 with the ETags from before the post
+     *
+     * Expected Response:
+     *  Status Code: 200 with both messages for account 9999, 304 for account 9997
+     */
+    @Test
+    public void newMessageChangesAccountETag() throws IOException, InterruptedException {
+        String eTag = get("/accounts/9999/messages", null).headers().firstValue("ETag").orElseThrow();
+        String otherETag = get("/accounts/9997/messages", null).headers().firstValue("ETag").orElseThrow();
+        Assertions.assertEquals(304, get("/accounts/9999/messages", eTag).statusCode());
+
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> response = get("/accounts/9999/messages", eTag);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(2, objectMapper.readValue(response.body(), Message[].class).length);
+        Assertions.assertEquals(304, get("/accounts/9997/messages", otherETag).statusCode());
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null){
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessageBatchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with one valid message, one message by an unknown 
+     * user and one blank message
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one result per message, only the first one created
+     */
+    @Test
+    public void createMessageBatchPerItemResults() throws IOException, InterruptedException {
+        String json = "[{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}," +
+                "{\"postedBy\":5050,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}," +
+                "{\"postedBy\":9999,\"messageText\":\"\",\"timePostedEpoch\":1669947792}]";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<JsonNode> results = objectMapper.readValue(response.body(), new TypeReference<List<JsonNode>>(){});
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(200, results.get(0).get("status").asInt());
+        Assertions.assertEquals("hello message", results.get(0).get("message").get("messageText").asText());
+        Assertions.assertTrue(results.get(0).get("message").get("messageId").asInt() > 0, "Expected a messageId");
+        Assertions.assertEquals(400, results.get(1).get("status").asInt());
+        Assertions.assertEquals(400, results.get(2).get("status").asInt());
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .build();
+        response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        List<JsonNode> messages = objectMapper.readValue(response.body(), new TypeReference<List<JsonNode>>(){});
+        Assertions.assertEquals(2, messages.size(), "Expected the created message to be persisted");
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with an empty array
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void createMessageBatchEmpty() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("[]"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@Tag("servlet")
+public class FlightRecordingTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app with the continuous recording enabled, and create a new 
+     * webClient for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {"--app.jfr.recording.enabled=true"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999, then dumping GET localhost:8080/admin/jfr/recording
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a flight recording with the request, service and repository events of the read, carrying 
+     *      messageId 9999
+     */
+    @Test
+    public void dumpRecordingHasRequestEvents() throws IOException, InterruptedException {
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+
+        HttpRequest dumpRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/admin/jfr/recording"))
+                .build();
+        Path file = Files.createTempFile("recording-test-", ".jfr");
+        try {
+            HttpResponse<Path> response = webClient.send(dumpRequest, HttpResponse.BodyHandlers.ofFile(file));
+            int status = response.statusCode();
+            Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            Assertions.assertTrue(events.stream().anyMatch(event -> 
+                    event.getEventType().getName().equals("com.example.HttpRequest") 
+                    && event.getString("uri").equals("/messages/{messageId}") && event.getInt("messageId") == 9999 
+                    && event.getInt("status") == 200));
+            Assertions.assertTrue(events.stream().anyMatch(event -> 
+                    event.getEventType().getName().equals("com.example.ServiceCall") 
+                    && event.getString("method").equals("getMessageById") && event.getInt("messageId") == 9999 
+                    && event.getString("outcome").equals("success")));
+            Assertions.assertTrue(events.stream().anyMatch(event -> 
+                    event.getEventType().getName().equals("com.example.RepositoryCall") 
+                    && event.getString("method").equals("findById") && event.getInt("id") == 9999 
+                    && event.getInt("rows") == 1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
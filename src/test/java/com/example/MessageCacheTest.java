@@ -0,0 +1,124 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.cache.LruCache;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageCacheTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999 twice, then PATCH-ing it and reading it again
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the read after the PATCH shows the new text, never the cached one
+     */
+    @Test
+    public void getMessageAfterUpdateIsNotStale() throws IOException, InterruptedException {
+        Message original = getMessage(9999);
+        Assertions.assertEquals(new Message(9999, 9999, "test message 1", 1669947792L), original);
+        Assertions.assertEquals(original, getMessage(9999));
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"text changed\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+
+        Assertions.assertEquals(new Message(9999, 9999, "text changed", 1669947792L), getMessage(9999));
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999, then DELETE-ing it and reading it again
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the read after the DELETE is empty
+     */
+    @Test
+    public void getMessageAfterDeleteIsEmpty() throws IOException, InterruptedException {
+        Assertions.assertNotNull(getMessage(9999));
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        HttpResponse<String> response = webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+
+        Assertions.assertNull(getMessage(9999));
+    }
+
+    /**
+     * Reading one key of a cache of 100 again and again, then putting 1000 keys that are each read once, like a scan
+     * 
+     * Expected Result:
+     *  the key read again and again is still cached, where a plain LRU cache would have evicted it
+     */
+    @Test
+    public void frequentlyReadEntrySurvivesScan() {
+        LruCache<Integer, String> cache = new LruCache<>(100, 0);
+        cache.put(1, "popular");
+        cache.put(2, "other");
+        for (int i = 0; i < 20; i++){
+            Assertions.assertEquals("popular", cache.get(1));
+        }
+        for (int key = 3; key < 1003; key++){
+            cache.get(key);
+            cache.put(key, "scanned");
+        }
+        Assertions.assertEquals("popular", cache.peek(1));
+        Assertions.assertTrue(cache.size() <= 100);
+    }
+
+    private Message getMessage(int messageId) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        if (response.body().isEmpty()){
+            return null;
+        }
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+}
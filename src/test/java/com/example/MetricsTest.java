@@ -0,0 +1,79 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+@Tag("servlet")
+public class MetricsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting 
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999 and a POST localhost:8080/messages that fails, then scraping
+     * GET localhost:8080/admin/metrics
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text with the request, the error, the repository call, pool and statement metrics
+     */
+    @Test
+    public void scrapeAfterRequests() throws IOException, InterruptedException {
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":5050,\"messageText\": \"hello message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+
+        HttpRequest scrapeRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/admin/metrics"))
+                .build();
+        HttpResponse<String> response = webClient.send(scrapeRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Assertions.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String body = response.body();
+        Assertions.assertTrue(body.contains("http_server_requests_seconds_count{handler=\"SocialMediaController.getMessageById\"," 
+                + "method=\"GET\",uri=\"/messages/{messageId}\"} 1\n"), body);
+        Assertions.assertTrue(body.contains("http_server_requests_errors_total{handler=\"SocialMediaController.postNewMessage\"," 
+                + "method=\"POST\",uri=\"/messages\",status=\"400\"} 1\n"), body);
+        Assertions.assertTrue(body.contains("repository_invocations_seconds_count{repository=\"MessageRepository\"," 
+                + "method=\"findById\"} 1\n"), body);
+        Assertions.assertTrue(body.contains("# TYPE hikari_connection_acquire_seconds histogram\n"), body);
+        Assertions.assertTrue(body.contains("hibernate_statements_total{kind=\"select\"}"), body);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.repository.AccountRepository;
+
+public class PasswordHashingTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    AccountRepository accountRepository;
+
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        accountRepository = app.getBean(AccountRepository.class);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Registering stores a salted hash, never the password, and the password still logs in.
+     */
+    @Test
+    public void registeredPasswordIsHashed() throws IOException, InterruptedException {
+        String json = "{\"username\":\"user\",\"password\":\"password\"}";
+        Assertions.assertEquals(200, send("/register", json).statusCode());
+        String stored = accountRepository.findByUsername("user").get().getPassword();
+        Assertions.assertTrue(stored.startsWith("pbkdf2-sha256$"), "Expected a hash but found " + stored);
+
+        Assertions.assertEquals(200, send("/login", json).statusCode());
+        Assertions.assertEquals(401, send("/login", "{\"username\":\"user\",\"password\":\"wrong\"}").statusCode());
+    }
+
+    /**
+     * A seed account with a plaintext password is rehashed on its first successful login and can log in after that.
+     */
+    @Test
+    public void legacyPasswordIsRehashedOnLogin() throws IOException, InterruptedException {
+        Assertions.assertEquals("password", accountRepository.findByUsername("testuser1").get().getPassword());
+        String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+        Assertions.assertEquals(200, send("/login", json).statusCode());
+        String stored = accountRepository.findByUsername("testuser1").get().getPassword();
+        Assertions.assertTrue(stored.startsWith("pbkdf2-sha256$"), "Expected a hash but found " + stored);
+        Assertions.assertEquals(200, send("/login", json).statusCode());
+    }
+
+    private HttpResponse<String> send(String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
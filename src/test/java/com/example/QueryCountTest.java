@@ -0,0 +1,192 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.repository.StatementCounter;
+
+/**
+ * Pins the number of SQL statements each endpoint issues, as counted by {@link StatementCounter}. A change that adds a 
+ * round trip to an endpoint has to update the expected count here, on purpose.
+ */
+@Tag("servlet")
+public class QueryCountTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * The first insert allocates a block of ids: the highest existing id, the sequence, and a check that the block 
+     * does not overlap the seed rows. Later inserts draw from the block without a round trip. A new username skips 
+     * the existence query through the Bloom filter, a duplicate one does not.
+     */
+    @Test
+    public void registerStatementCount() throws IOException, InterruptedException {
+        assertStatements(4, "POST", "/register", "{\"username\":\"user\",\"password\":\"password\"}");
+        assertStatements(1, "POST", "/register", "{\"username\":\"user2\",\"password\":\"password\"}");
+        assertStatements(1, "POST", "/register", "{\"username\":\"user2\",\"password\":\"password\"}");
+    }
+
+    /**
+     * The first login of a seed account rehashes its plaintext password, later logins only look the account up.
+     */
+    @Test
+    public void loginStatementCount() throws IOException, InterruptedException {
+        String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+        assertStatements(2, "POST", "/login", json);
+        assertStatements(1, "POST", "/login", json);
+    }
+
+    /**
+     * The first insert allocates a block of ids: the highest existing id, the sequence, and a check that the block 
+     * does not overlap the seed rows. Later inserts draw from the block without a round trip. The author is checked 
+     * against the in-memory account id index, not the DB.
+     */
+    @Test
+    public void postMessageStatementCount() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        assertStatements(4, "POST", "/messages", json);
+        assertStatements(1, "POST", "/messages", json);
+    }
+
+    @Test
+    public void getAllMessagesStatementCount() throws IOException, InterruptedException {
+        assertStatements(1, "GET", "/messages", null);
+    }
+
+    /**
+     * The recent feed is held in memory and never reads the database.
+     */
+    @Test
+    public void getRecentMessagesStatementCount() throws IOException, InterruptedException {
+        assertStatements(0, "GET", "/messages?recent=10", null);
+    }
+
+    /**
+     * Time ranges that start inside the in-memory window of recent messages never read the database, older ones are 
+     * one indexed query.
+     */
+    @Test
+    public void getMessagesInTimeRangeStatementCount() throws IOException, InterruptedException {
+        long since = System.currentTimeMillis() / 1000 - 60;
+        assertStatements(0, "GET", "/messages?since=" + since, null);
+        assertStatements(0, "GET", "/accounts/9999/messages?since=" + since, null);
+        assertStatements(1, "GET", "/messages?since=0&until=" + since, null);
+    }
+
+    /**
+     * Account statistics and the leaderboard are served from in-memory counters and never read the database.
+     */
+    @Test
+    public void getAccountStatsStatementCount() throws IOException, InterruptedException {
+        assertStatements(0, "GET", "/accounts/9999/stats", null);
+        assertStatements(0, "GET", "/accounts/top-posters", null);
+    }
+
+    /**
+     * The second read of the same message is served by the message cache.
+     */
+    @Test
+    public void getMessageByIdStatementCount() throws IOException, InterruptedException {
+        assertStatements(1, "GET", "/messages/9999", null);
+        assertStatements(0, "GET", "/messages/9999", null);
+    }
+
+    /**
+     * A message the message cache holds is deleted with the DELETE alone. A message that does not exist stops at the 
+     * read.
+     */
+    @Test
+    public void deleteMessageStatementCount() throws IOException, InterruptedException {
+        assertStatements(1, "GET", "/messages/9999", null);
+        assertStatements(1, "DELETE", "/messages/9999", null);
+        assertStatements(1, "DELETE", "/messages/9999", null);
+    }
+
+    /**
+     * A message that is not cached is read and locked before it is deleted, so the in-memory structures learn whose 
+     * message it was.
+     */
+    @Test
+    public void deleteUncachedMessageStatementCount() throws IOException, InterruptedException {
+        assertStatements(2, "DELETE", "/messages/9999", null);
+    }
+
+    /**
+     * Like a delete, an update of a cached message is the UPDATE alone. The edit keeps the cache current, so the next 
+     * edit of the same message is a single statement as well.
+     */
+    @Test
+    public void patchMessageStatementCount() throws IOException, InterruptedException {
+        assertStatements(1, "GET", "/messages/9999", null);
+        assertStatements(1, "PATCH", "/messages/9999", "{\"messageText\": \"text changed\"}");
+        assertStatements(1, "PATCH", "/messages/9999", "{\"messageText\": \"text changed again\"}");
+        assertStatements(1, "PATCH", "/messages/5050", "{\"messageText\": \"text changed\"}");
+    }
+
+    /**
+     * Like a delete, an update of a message that is not cached reads and locks the row first.
+     */
+    @Test
+    public void patchUncachedMessageStatementCount() throws IOException, InterruptedException {
+        assertStatements(2, "PATCH", "/messages/9999", "{\"messageText\": \"text changed\"}");
+    }
+
+    /**
+     * The timeline is loaded by the first read and kept current by writes, so later reads are served from memory.
+     */
+    @Test
+    public void getMessagesByAccountStatementCount() throws IOException, InterruptedException {
+        assertStatements(1, "GET", "/accounts/9999/messages", null);
+        assertStatements(0, "GET", "/accounts/9999/messages", null);
+        assertStatements(2, "PATCH", "/messages/9999", "{\"messageText\": \"text changed\"}");
+        assertStatements(0, "GET", "/accounts/9999/messages", null);
+        assertStatements(0, "GET", "/accounts/9999/messages?limit=10", null);
+    }
+
+    private void assertStatements(long expected, String method, String path, String json) 
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path));
+        if (json == null){
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }else{
+            request.method(method, HttpRequest.BodyPublishers.ofString(json))
+                    .header("Content-Type", "application/json");
+        }
+        StatementCounter.reset();
+        HttpResponse<String> response = webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        long actual = StatementCounter.count();
+        Assertions.assertTrue(response.statusCode() < 500, "Request failed with status " + response.statusCode());
+        Assertions.assertEquals(expected, actual, "Unexpected number of statements for " + method + " " + path);
+    }
+}
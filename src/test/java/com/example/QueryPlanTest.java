@@ -0,0 +1,141 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import com.example.repository.StatementCounter;
+
+/**
+ * Calls every repository query, captures the SQL Hibernate prepares for it through {@link StatementCounter}, and
+ * fails if H2 plans a table scan for any of those statements.
+ *
+ * A new repository method needs an entry here. Whole-table reads (findAll and the startup streams that build
+ * in-memory indexes) are the only queries allowed to scan. Every call runs in a transaction that is rolled back, so
+ * updates and deletes leave the seed rows in place.
+ */
+@Tag("servlet")
+public class QueryPlanTest {
+    ApplicationContext app;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+    MessageRepository messageRepository;
+    AccountRepository accountRepository;
+
+    @BeforeEach
+    public void setUp() {
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        jdbcTemplate = app.getBean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+        messageRepository = app.getBean(MessageRepository.class);
+        accountRepository = app.getBean(AccountRepository.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SpringApplication.exit(app);
+    }
+
+    /**
+     * The secondary indexes from data.sql must exist on the message table.
+     */
+    @Test
+    public void messageTableHasSecondaryIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select index_name from information_schema.indexes where table_name = 'MESSAGE'", String.class);
+        Assertions.assertTrue(indexes.contains("IDX_MESSAGE_POSTEDBY_TIME"), "Missing index, found " + indexes);
+        Assertions.assertTrue(indexes.contains("IDX_MESSAGE_POSTEDBY_ID"), "Missing index, found " + indexes);
+        Assertions.assertTrue(indexes.contains("IDX_MESSAGE_TIME_ID"), "Missing index, found " + indexes);
+    }
+
+    /**
+     * Every MessageRepository query must be answered from an index.
+     */
+    @Test
+    public void messageRepositoryQueriesUseIndexes() {
+        assertNoTableScan("findById", () -> messageRepository.findById(9999));
+        assertNoTableScan("existsById", () -> messageRepository.existsById(9999));
+        assertNoTableScan("findAllById", () -> messageRepository.findAllById(List.of(9996, 9999)));
+        assertNoTableScan("findByPostedBy", () -> messageRepository.findByPostedBy(9999));
+        assertIndexSorted("findByMessageIdGreaterThanOrderByMessageIdAsc",
+                () -> messageRepository.findByMessageIdGreaterThanOrderByMessageIdAsc(9996, PageRequest.of(0, 51)));
+        assertIndexSorted("findByPostedByAndMessageIdGreaterThanOrderByMessageIdAsc",
+                () -> messageRepository.findByPostedByAndMessageIdGreaterThanOrderByMessageIdAsc(9999, 0,
+                        PageRequest.of(0, 51)));
+        assertNoTableScan("findMaxMessageId", () -> messageRepository.findMaxMessageId());
+        assertNoTableScan("findByPostedByOrderByMessageIdDesc",
+                () -> messageRepository.findByPostedByOrderByMessageIdDesc(9999, PageRequest.of(0, 201)));
+        assertIndexSorted("findByTimePostedRange",
+                () -> messageRepository.findByTimePostedRange(1669947792, 1669947793));
+        assertNoTableScan("findByPostedByAndTimePostedRange",
+                () -> messageRepository.findByPostedByAndTimePostedRange(9999, 1669947792, 1669947793));
+        assertNoTableScan("findTimePostedRange", () -> messageRepository.findTimePostedRange(9999));
+        assertNoTableScan("streamAll", () -> messageRepository.streamAll().close());
+        assertNoTableScan("findLockedByMessageId", () -> messageRepository.findLockedByMessageId(9999));
+        assertNoTableScan("updateMessageText", () -> messageRepository.updateMessageText(9999, "text changed"));
+        assertNoTableScan("deleteByMessageId", () -> messageRepository.deleteByMessageId(9999));
+    }
+
+    /**
+     * Every AccountRepository query must be answered from an index.
+     */
+    @Test
+    public void accountRepositoryQueriesUseIndexes() {
+        assertNoTableScan("findById", () -> accountRepository.findById(9999));
+        assertNoTableScan("existsById", () -> accountRepository.existsById(9999));
+        assertNoTableScan("findExistingIds", () -> accountRepository.findExistingIds(Set.of(9996, 9999)));
+        assertNoTableScan("findByUsername", () -> accountRepository.findByUsername("testuser1"));
+        assertNoTableScan("existsByUsername", () -> accountRepository.existsByUsername("testuser1"));
+        assertNoTableScan("updatePassword", () -> accountRepository.updatePassword(9999, "password"));
+    }
+
+    private void assertNoTableScan(String method, Runnable call) {
+        assertPlans(method, call, false);
+    }
+
+    /**
+     * Keyset pages and range reads must also come out of their index in the order asked for, so that a limit stops
+     * the read instead of sorting every row that matches.
+     */
+    private void assertIndexSorted(String method, Runnable call) {
+        assertPlans(method, call, true);
+    }
+
+    /**
+     * Runs a repository call and EXPLAINs every statement it prepared, with each parameter bound to the same
+     * placeholder value, which H2 converts to the type of the column it is compared with.
+     */
+    private void assertPlans(String method, Runnable call, boolean sorted) {
+        List<String> statements = StatementCounter.capture(() -> transactionTemplate.executeWithoutResult(status -> {
+            call.run();
+            status.setRollbackOnly();
+        }));
+        Assertions.assertFalse(statements.isEmpty(), method + " prepared no statement");
+        for (String sql : statements){
+            Object[] parameters = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+            Arrays.fill(parameters, "9999");
+            List<Map<String, Object>> plan = jdbcTemplate.queryForList("explain " + sql, parameters);
+            String text = plan.toString();
+            Assertions.assertFalse(text.contains("tableScan"), "Table scan planned for " + method + ": " + sql + "\n"
+                    + text);
+            Assertions.assertTrue(!sorted || text.contains("index sorted"), "Sort planned for " + method + ": " + sql 
+                    + "\n" + text);
+        }
+    }
+}
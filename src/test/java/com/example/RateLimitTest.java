@@ -0,0 +1,187 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the app with the rate limit on, which it is not by default, and buckets of 3 requests refilling at one token
+ * every 10 seconds, so a test never sees a refill.
+ */
+@Tag("servlet")
+public class RateLimitTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--app.ratelimit.enabled=true", "--app.ratelimit.permits-per-second=0.1",
+                "--app.ratelimit.burst=3"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending POST localhost:8080/messages four times for one account, then once for another
+     *
+     * Expected Response:
+     *  Status Code: 200 for the burst, 429 with a Retry-After header after it, 200 for the other account
+     */
+    @Test
+    public void postsLimitedPerAccount() throws IOException, InterruptedException {
+        for (int i = 0; i < 3; i++){
+            Assertions.assertEquals(200, post(9999).statusCode());
+        }
+        HttpResponse<String> limited = post(9999);
+        Assertions.assertEquals(429, limited.statusCode());
+        long retryAfter = Long.parseLong(limited.headers().firstValue("Retry-After").orElseThrow());
+        Assertions.assertTrue(retryAfter >= 1 && retryAfter <= 10, "Retry-After was " + retryAfter);
+        Assertions.assertEquals(200, post(9998).statusCode());
+
+        HttpResponse<String> stats = get("/admin/rate-limits");
+        Assertions.assertEquals(1, objectMapper.readTree(stats.body()).get("rejected").asInt());
+    }
+
+    /**
+     * Sending POST localhost:8080/messages and POST localhost:8080/messages/batch for accounts that do not exist, 
+     * more often than the burst allows
+     *
+     * Expected Response:
+     *  Status Code: 400 for every post and batch item, never 429, and GET localhost:8080/admin/rate-limits holds no 
+     *      bucket
+     */
+    @Test
+    public void unknownAccountsGetNoBucket() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++){
+            Assertions.assertEquals(400, post(20000 + i).statusCode());
+            Assertions.assertEquals(400, post(30000).statusCode());
+        }
+        HttpRequest batchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(List.of(
+                        new Message(30001, "limited message", 1669947792L),
+                        new Message(30001, "limited message", 1669947792L),
+                        new Message(30001, "limited message", 1669947792L),
+                        new Message(30001, "limited message", 1669947792L)))))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(batchRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        List<JsonNode> results = objectMapper.readValue(response.body(), new TypeReference<List<JsonNode>>(){});
+        Assertions.assertEquals(List.of(400, 400, 400, 400), 
+                results.stream().map(result -> result.get("status").asInt()).collect(Collectors.toList()));
+
+        JsonNode stats = objectMapper.readTree(get("/admin/rate-limits").body());
+        Assertions.assertEquals(0, stats.get("buckets").asInt());
+        Assertions.assertEquals(0, stats.get("rejected").asInt());
+    }
+
+    /**
+     * Sending PATCH localhost:8080/messages/{messageId} after the author used up its bucket posting, and for a 
+     * message whose author is not cached, sharing the bucket with the author's posts
+     *
+     * Expected Response:
+     *  Status Code: 429 for an edit by the author once the bucket is empty, 400 for invalid requests within the 
+     *      limit, 429 once edits of the uncached author used up its bucket, with the text left unchanged
+     */
+    @Test
+    public void patchesLimitedPerAuthor() throws IOException, InterruptedException {
+        //reading the message caches it, which tells the limiter its author before any query
+        Assertions.assertEquals(200, get("/messages/9997").statusCode());
+        for (int i = 0; i < 3; i++){
+            Assertions.assertEquals(200, post(9997).statusCode());
+        }
+        Assertions.assertEquals(429, patch(9997, "edited").statusCode());
+
+        //message 9996 is by account 9996, whose bucket is only known once the row is read; the edit caches the 
+        //message, so from then on the author is known up front and an invalid edit takes a token like a post
+        Assertions.assertEquals(200, patch(9996, "edited").statusCode());
+        Assertions.assertEquals(400, patch(9996, "").statusCode());
+        Assertions.assertEquals(200, patch(9996, "edited again").statusCode());
+        Assertions.assertEquals(429, patch(9996, "edited once more").statusCode());
+        Assertions.assertEquals(429, post(9996).statusCode());
+
+        Message stored = objectMapper.readValue(get("/messages/9996").body(), Message.class);
+        Assertions.assertEquals("edited again", stored.getMessageText());
+    }
+
+    /**
+     * Sending POST localhost:8080/messages/batch with four messages of one account
+     *
+     * Expected Response:
+     *  Status Code: 200, with the first three items created and the fourth refused with status 429
+     */
+    @Test
+    public void batchItemsLimitedPerAuthor() throws IOException, InterruptedException {
+        Message message = new Message(9999, "limited message", 1669947792L);
+        HttpRequest batchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        List.of(message, message, message, message))))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(batchRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        List<JsonNode> results = objectMapper.readValue(response.body(), new TypeReference<List<JsonNode>>(){});
+        Assertions.assertEquals(List.of(200, 200, 200, 429), 
+                results.stream().map(result -> result.get("status").asInt()).collect(Collectors.toList()));
+        Assertions.assertEquals(429, post(9999).statusCode());
+    }
+
+    private HttpResponse<String> post(int postedBy) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        new Message(postedBy, "limited message", 1669947792L))))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> patch(int messageId, String text) throws IOException, InterruptedException {
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"" + text + "\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.cache.RecentFeed;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RecentFeedTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages?recent=N after POST-ing, PATCH-ing and DELETE-ing messages
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the newest N messages, oldest first, reflecting every write before the read
+     */
+    @Test
+    public void getRecentMessagesAfterWrites() throws IOException, InterruptedException {
+        Message message1 = new Message(9999, 9999, "test message 1", 1669947792L);
+        Message message2 = new Message(9997, 9997, "test message 2", 1669947792L);
+        Message message3 = new Message(9996, 9996, "test message 3", 1669947792L);
+        Assertions.assertEquals(List.of(message2, message1), getRecentMessages(2));
+        Assertions.assertEquals(List.of(message3, message2, message1), getRecentMessages(100));
+
+        HttpResponse<String> response = send("POST", "/messages", 
+                "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947793}");
+        Message posted = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals(List.of(message1, posted), getRecentMessages(2));
+
+        send("PATCH", "/messages/9999", "{\"messageText\": \"text changed\"}");
+        Message changed = new Message(9999, 9999, "text changed", 1669947792L);
+        Assertions.assertEquals(List.of(changed, posted), getRecentMessages(2));
+
+        send("DELETE", "/messages/" + posted.getMessageId(), null);
+        Assertions.assertEquals(List.of(message3, message2, changed), getRecentMessages(100));
+    }
+
+    /**
+     * Listeners of different writes run in commit order, so the edit or delete of a new message can reach the feed
+     * before its creation, which must not bring back the old text or the deleted message.
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the edited message, without the deleted one
+     */
+    @Test
+    public void getRecentMessagesWithChangesBeforeCreation() throws IOException, InterruptedException {
+        RecentFeed recentFeed = app.getBean(RecentFeed.class);
+        Message message1 = new Message(9999, 9999, "test message 1", 1669947792L);
+        Message edited = new Message(20001, 9999, "first text", 1669947800L);
+        Message editedChanged = new Message(20001, 9999, "second text", 1669947800L);
+        Message deleted = new Message(20002, 9999, "deleted text", 1669947801L);
+
+        recentFeed.messageUpdated(edited, editedChanged);
+        recentFeed.messageDeleted(deleted);
+        recentFeed.messageCreated(edited);
+        recentFeed.messageCreated(deleted);
+        Assertions.assertEquals(List.of(message1, editedChanged), getRecentMessages(2));
+    }
+
+    /**
+     * Sending GET localhost:8080/messages?recent=0
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getRecentMessagesInvalidCount() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?recent=0"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    private List<Message> getRecentMessages(int recent) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/messages?recent=" + recent, null);
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return response;
+    }
+}
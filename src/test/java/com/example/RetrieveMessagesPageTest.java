@@ -0,0 +1,120 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessagesPageTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?limit=2, then following the X-Next-Cursor header
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: first page holds messages 9996 and 9997, second page holds 9999 and has no next cursor
+     */
+    @Test
+    public void getMessagesPageFollowCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=2"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+
+        String cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        Assertions.assertNotNull(cursor, "Expected a next cursor on a full page");
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=2&after=" + cursor))
+                .build();
+        response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+        Assertions.assertTrue(response.headers().firstValue("X-Next-Cursor").isEmpty(), "Expected no cursor on the last page");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?limit=1
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the single message of account 9999, with no next cursor
+     */
+    @Test
+    public void getMessagesPageForUser() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=1"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+        Assertions.assertTrue(response.headers().firstValue("X-Next-Cursor").isEmpty(), "Expected no cursor on the last page");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with a cursor that was not issued by the API
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesPageInvalidCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?after=not-a-cursor"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
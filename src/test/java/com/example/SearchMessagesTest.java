@@ -0,0 +1,174 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.example.index.MessageTextIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SearchMessagesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search?q=test+message for the messages of data.sql
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the three messages, newest messageId first
+     */
+    @Test
+    public void searchIndexedAtStartup() throws IOException, InterruptedException {
+        HttpResponse<String> response = search("test message", null);
+        Assertions.assertEquals(200, response.statusCode());
+        Message[] messages = objectMapper.readValue(response.body(), Message[].class);
+        Assertions.assertEquals(3, messages.length);
+        Assertions.assertEquals(new Message(9999, 9999, "test message 1", 1669947792L), messages[0]);
+        Assertions.assertEquals(new Message(9997, 9997, "test message 2", 1669947792L), messages[1]);
+        Assertions.assertEquals(new Message(9996, 9996, "test message 3", 1669947792L), messages[2]);
+    }
+
+    /**
+     * Sending POST localhost:8080/messages twice, then searching with every word, with a prefix and with a limit
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the messages holding every word, newest first, ignoring case and punctuation
+     */
+    @Test
+    public void searchAndPrefixAcrossNewMessages() throws IOException, InterruptedException {
+        Message hello = post("Hello, World!");
+        Message help = post("help wanted in the world");
+
+        assertMessageIds(search("world", null), help.getMessageId(), hello.getMessageId());
+        assertMessageIds(search("WORLD hello", null), hello.getMessageId());
+        assertMessageIds(search("hel* world", null), help.getMessageId(), hello.getMessageId());
+        assertMessageIds(search("hel*", 1), help.getMessageId());
+        assertMessageIds(search("world message", null));
+    }
+
+    /**
+     * Sending PATCH and DELETE localhost:8080/messages/{messageId}, then searching for the old and new words
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the updated message under its new words only, the deleted message no longer
+     */
+    @Test
+    public void searchFollowsUpdatesAndDeletes() throws IOException, InterruptedException {
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"updated text\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        assertMessageIds(search("test", null), 9996);
+        assertMessageIds(search("updated", null), 9999);
+    }
+
+    /**
+     * An edit and a delete that reach the text index for a message it never indexed, as for a message created while 
+     * the index was being filled, then sending GET localhost:8080/messages/search?q=test and ?q=ghost
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the three messages of data.sql for test, none for ghost, and the index still counts three
+     */
+    @Test
+    public void searchIgnoresChangesOfUnindexedMessage() throws IOException, InterruptedException {
+        MessageTextIndex index = app.getBean(MessageTextIndex.class);
+        int size = index.size();
+        index.messageUpdated(new Message(20001, 9999, "test message 4", 1669947793L),
+                new Message(20001, 9999, "ghost message", 1669947793L));
+        index.messageDeleted(new Message(20002, 9999, "test message 5", 1669947793L));
+        assertMessageIds(search("test", null), 9999, 9997, 9996);
+        assertMessageIds(search("ghost", null));
+        Assertions.assertEquals(size, index.size());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search without a word in q
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchWithoutWordsRejected() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, search(" ,! ", null).statusCode());
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search"))
+                .build();
+        Assertions.assertEquals(400, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private void assertMessageIds(HttpResponse<String> response, int... expected) throws IOException {
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        Message[] messages = objectMapper.readValue(response.body(), Message[].class);
+        int[] actual = new int[messages.length];
+        for (int i = 0; i < messages.length; i++){
+            actual[i] = messages[i].getMessageId();
+        }
+        Assertions.assertArrayEquals(expected, actual);
+    }
+
+    private HttpResponse<String> search(String q, Integer limit) throws IOException, InterruptedException {
+        String uri = "http://localhost:8080/messages/search?q=" + URLEncoder.encode(q, StandardCharsets.UTF_8)
+                + (limit == null ? "" : "&limit=" + limit);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Message post(String text) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        new Message(9998, text, 1669947792L))))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+}
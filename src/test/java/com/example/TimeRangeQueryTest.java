@@ -0,0 +1,143 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TimeRangeQueryTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages?since=..&until=.. around the time of the messages of data.sql, which is far
+     * older than the in-memory window
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the messages posted at or after since and before until, by messageId on equal times
+     */
+    @Test
+    public void rangeOverOldMessages() throws IOException, InterruptedException {
+        assertMessageIds(get("/messages?since=1669947792&until=1669947793"), 9996, 9997, 9999);
+        assertMessageIds(get("/messages?until=1669947792"));
+        assertMessageIds(get("/messages?since=1669947793&until=1700000000"));
+        assertMessageIds(get("/accounts/9997/messages?since=1669947792&until=1669947793"), 9997);
+        assertMessageIds(get("/accounts/9998/messages?until=1669947793"));
+    }
+
+    /**
+     * Sending POST localhost:8080/messages with times of the last minute, then GET localhost:8080/messages?since=..
+     * inside the window, before and after PATCH and DELETE localhost:8080/messages/{messageId}
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the new messages in time order, following the updates and deletes
+     */
+    @Test
+    public void rangeOverRecentMessages() throws IOException, InterruptedException {
+        long now = System.currentTimeMillis() / 1000;
+        Message second = post(9998, now - 20);
+        Message first = post(9998, now - 40);
+        Message third = post(9999, now - 10);
+
+        String since = "since=" + (now - 60);
+        assertMessageIds(get("/messages?" + since), first.getMessageId(), second.getMessageId(), third.getMessageId());
+        assertMessageIds(get("/messages?" + since + "&until=" + (now - 10)), first.getMessageId(), 
+                second.getMessageId());
+        assertMessageIds(get("/accounts/9998/messages?" + since), first.getMessageId(), second.getMessageId());
+        assertMessageIds(get("/messages?since=0"), 9996, 9997, 9999, first.getMessageId(), second.getMessageId(), 
+                third.getMessageId());
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + second.getMessageId()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"updated text\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + first.getMessageId()))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Message[] messages = objectMapper.readValue(get("/accounts/9998/messages?" + since).body(), Message[].class);
+        Assertions.assertEquals(1, messages.length);
+        Assertions.assertEquals(new Message(second.getMessageId(), 9998, "updated text", now - 20), messages[0]);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages with since after until, or with since and a page parameter
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidRangeRejected() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, get("/messages?since=10&until=5").statusCode());
+        Assertions.assertEquals(400, get("/messages?since=10&limit=5").statusCode());
+        Assertions.assertEquals(400, get("/accounts/9999/messages?until=10&after=bTo1").statusCode());
+        Assertions.assertEquals(400, get("/messages?since=yesterday").statusCode());
+    }
+
+    private void assertMessageIds(HttpResponse<String> response, int... expected) throws IOException {
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        Message[] messages = objectMapper.readValue(response.body(), Message[].class);
+        int[] actual = new int[messages.length];
+        for (int i = 0; i < messages.length; i++){
+            actual[i] = messages[i].getMessageId();
+        }
+        Assertions.assertArrayEquals(expected, actual);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Message post(int postedBy, long timePostedEpoch) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        new Message(postedBy, "range message", timePostedEpoch))))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+}
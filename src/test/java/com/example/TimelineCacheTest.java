@@ -0,0 +1,170 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Message;
+import com.example.service.MessagePage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("servlet")
+public class TimelineCacheTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages, then POST-ing, PATCH-ing and DELETE-ing messages of 
+     * account 9999 and reading its messages after each write
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every read reflects the writes before it
+     */
+    @Test
+    public void getAccountMessagesAfterWritesIsNotStale() throws IOException, InterruptedException {
+        Message seeded = new Message(9999, 9999, "test message 1", 1669947792L);
+        Assertions.assertEquals(List.of(seeded), getAccountMessages(""));
+
+        Message posted = send("POST", "/messages", 
+                "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947793}", Message.class);
+        Assertions.assertEquals(List.of(posted, seeded), getAccountMessages(""));
+
+        send("PATCH", "/messages/9999", "{\"messageText\": \"text changed\"}", Integer.class);
+        Message changed = new Message(9999, 9999, "text changed", 1669947792L);
+        Assertions.assertEquals(List.of(posted, changed), getAccountMessages(""));
+
+        send("DELETE", "/messages/" + posted.getMessageId(), null, Integer.class);
+        Assertions.assertEquals(List.of(changed), getAccountMessages(""));
+    }
+
+    /**
+     * Sending POST localhost:8080/messages/batch with more messages for account 9999 than a timeline holds, then 
+     * reading all of its messages and paging through them
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message of the account in messageId order, including the ones before the window
+     */
+    @Test
+    public void getAccountMessagesPastTimelineWindow() throws IOException, InterruptedException {
+        Assertions.assertEquals(1, getAccountMessages("").size());
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 250; i++){
+            json.append(i == 0 ? "" : ",").append("{\"postedBy\":9999,\"messageText\": \"message ").append(i)
+                    .append("\",\"timePostedEpoch\": 1669947793}");
+        }
+        send("POST", "/messages/batch", json.append("]").toString());
+
+        List<Message> all = getAccountMessages("");
+        Assertions.assertEquals(251, all.size());
+        Assertions.assertEquals("message 0", all.get(0).getMessageText());
+        Assertions.assertEquals("message 249", all.get(249).getMessageText());
+        Assertions.assertEquals(9999, (int) all.get(250).getMessageId());
+        for (int i = 1; i < all.size(); i++){
+            Assertions.assertTrue(all.get(i - 1).getMessageId() < all.get(i).getMessageId());
+        }
+
+        //a page inside the window and one reaching past it
+        Assertions.assertEquals(all.subList(200, 251), getAccountMessages("?limit=100&after=" + MessagePage.encodeCursor(all.get(199).getMessageId())));
+        Assertions.assertEquals(all.subList(0, 100), getAccountMessages("?limit=100"));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages, then PATCH localhost:8080/messages/9999 from several threads 
+     * at once
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the timeline holds the text the database was left with, whichever edit committed last
+     */
+    @Test
+    public void concurrentEditsLeaveTimelineCurrent() throws IOException, InterruptedException {
+        getAccountMessages("");
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> editors = new ArrayList<>();
+        for (int t = 0; t < 8; t++){
+            int editor = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20; i++){
+                        send("PATCH", "/messages/9999", "{\"messageText\": \"edit " + editor + "-" + i + "\"}");
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+            editors.add(thread);
+        }
+        for (Thread thread : editors){
+            thread.join();
+        }
+        Assertions.assertTrue(failures.isEmpty(), failures.toString());
+
+        String stored = app.getBean(JdbcTemplate.class).queryForObject(
+                "select messageText from message where messageId = 9999", String.class);
+        Assertions.assertEquals(stored, getAccountMessages("").get(0).getMessageText());
+    }
+
+    private List<Message> getAccountMessages(String query) throws IOException, InterruptedException {
+        return send("GET", "/accounts/9999/messages" + query, null, new TypeReference<List<Message>>(){});
+    }
+
+    private <T> T send(String method, String path, String json, Class<T> type) throws IOException, InterruptedException {
+        return objectMapper.readValue(send(method, path, json), type);
+    }
+
+    private <T> T send(String method, String path, String json, TypeReference<T> type) throws IOException, InterruptedException {
+        return objectMapper.readValue(send(method, path, json), type);
+    }
+
+    private String send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return response.body();
+    }
+}
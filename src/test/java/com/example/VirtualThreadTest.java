@@ -0,0 +1,64 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.threads.VirtualThreads;
+
+@Tag("servlet")
+public class VirtualThreadTest {
+    HttpClient webClient;
+    String[] args = new String[] {"--app.threads.virtual.enabled=true"};
+
+    @BeforeEach
+    public void setUp() {
+        webClient = HttpClient.newHttpClient();
+    }
+
+    /**
+     * With app.threads.virtual.enabled=true on a Java 21 runtime, sending GET localhost:8080/messages/9999
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message, read on a virtual request thread
+     */
+    @Test
+    public void virtualThreadModeServesRequests() throws IOException, InterruptedException {
+        Assumptions.assumeTrue(VirtualThreads.isSupported(), "needs a Java 21 runtime");
+        ApplicationContext app = SpringApplication.run(SocialMediaApp.class, args);
+        try {
+            Thread.sleep(500);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/9999"))
+                    .build();
+            HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+            Assertions.assertTrue(response.body().contains("\"messageId\":9999"));
+        } finally {
+            Thread.sleep(500);
+            SpringApplication.exit(app);
+        }
+    }
+
+    /**
+     * With app.threads.virtual.enabled=true on a runtime older than Java 21, the app does not start instead of 
+     * silently running on platform threads.
+     */
+    @Test
+    public void virtualThreadModeNeedsJava21() {
+        Assumptions.assumeFalse(VirtualThreads.isSupported(), "runs on a runtime without virtual threads");
+        Assertions.assertThrows(Exception.class, () -> SpringApplication.run(SocialMediaApp.class, args));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Message;
+import com.example.service.MessageWriteBehind;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("servlet")
+public class WriteBehindTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with write-behind posting and a flush interval long
+     * enough to observe queued messages, and create a new webClient for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--app.messages.write-behind.enabled=true",
+                "--app.messages.write-behind.flush-interval-ms=1000"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending POST localhost:8080/messages, then GET localhost:8080/messages/{messageId} before the writer ran
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the queued message, and a queue depth of 1 at GET localhost:8080/admin/metrics
+     */
+    @Test
+    public void readYourWriteWhileQueued() throws IOException, InterruptedException {
+        Message posted = post("{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}");
+        Assertions.assertNotNull(posted.getMessageId());
+
+        HttpResponse<String> response = get("/messages/" + posted.getMessageId());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(posted, objectMapper.readValue(response.body(), Message.class));
+        String metrics = get("/admin/metrics").body();
+        Assertions.assertTrue(metrics.contains("message_write_behind_queue_depth 1\n"), metrics);
+    }
+
+    /**
+     * Sending POST localhost:8080/messages, then PATCH localhost:8080/messages/{messageId} right away
+     *
+     * Expected Response:
+     *  Status Code: 200 once the message has been written, which the account timeline then shows updated
+     */
+    @Test
+    public void updateWaitsForQueuedMessage() throws IOException, InterruptedException {
+        Message posted = post("{\"postedBy\":9998,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}");
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + posted.getMessageId()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("1", response.body());
+
+        Message[] timeline = objectMapper.readValue(get("/accounts/9998/messages").body(), Message[].class);
+        Assertions.assertEquals(1, timeline.length);
+        Assertions.assertEquals(new Message(posted.getMessageId(), 9998, "updated message", 1669947792L), timeline[0]);
+        String metrics = get("/admin/metrics").body();
+        Assertions.assertTrue(metrics.contains("message_write_behind_queue_depth 0\n"), metrics);
+        Assertions.assertTrue(metrics.contains("message_write_behind_flushed_total 1\n"), metrics);
+        Assertions.assertTrue(metrics.contains("message_write_behind_flush_seconds_count 1\n"), metrics);
+    }
+
+    /**
+     * Sending several POST localhost:8080/messages, then GET localhost:8080/messages once they have been written
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every posted message, written in one batch
+     */
+    @Test
+    public void queuedMessagesWrittenInOneBatch() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++){
+            post("{\"postedBy\":9997,\"messageText\": \"message " + i + "\",\"timePostedEpoch\": 1669947792}");
+        }
+        Thread.sleep(1500);
+
+        Message[] messages = objectMapper.readValue(get("/messages").body(), Message[].class);
+        Assertions.assertEquals(8, messages.length);
+        String metrics = get("/admin/metrics").body();
+        Assertions.assertTrue(metrics.contains("message_write_behind_flushed_total 5\n"), metrics);
+        Assertions.assertTrue(metrics.contains("message_write_behind_flush_seconds_count 1\n"), metrics);
+    }
+
+    /**
+     * Queueing messages from several threads while the writer is stopped
+     *
+     * Expected Result:
+     *  every message that was given a messageId is in the database once stop() returns
+     */
+    @Test
+    public void stopWritesEveryAcceptedMessage() throws InterruptedException {
+        MessageWriteBehind writeBehind = app.getBean(MessageWriteBehind.class);
+        Set<Integer> accepted = ConcurrentHashMap.newKeySet();
+        List<Thread> posters = new ArrayList<>();
+        for (int i = 0; i < 4; i++){
+            Thread poster = new Thread(() -> {
+                while (true){
+                    try {
+                        accepted.add(writeBehind.enqueue(new Message(9999, "racing stop", 1669947792L)).getMessageId());
+                    } catch (RejectedExecutionException e) {
+                        //a full queue is retried, a stopped writer ends the poster
+                        if (e.getMessage().contains("stopped")){
+                            return;
+                        }
+                    }
+                }
+            });
+            poster.start();
+            posters.add(poster);
+        }
+        Thread.sleep(50);
+        writeBehind.stop();
+        for (Thread poster : posters){
+            poster.join();
+        }
+
+        Integer stored = app.getBean(JdbcTemplate.class).queryForObject(
+                "select count(*) from message where messageText = 'racing stop'", Integer.class);
+        Assertions.assertFalse(accepted.isEmpty());
+        Assertions.assertEquals(accepted.size(), stored);
+    }
+
+    private Message post(String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
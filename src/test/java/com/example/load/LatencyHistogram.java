@@ -0,0 +1,90 @@
+package com.example.load;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram: values are counted in log-linear buckets with
+ * {@value #SUB_BUCKET_BITS} bits of mantissa, so every recorded value is kept to within 0.2% of its magnitude over the
+ * whole range of a long, in a fixed 220 KiB of counters. Percentiles report the highest value equivalent to the
+ * bucket they land in, so they never understate a latency.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 10;
+    private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_HALF_BITS) << SUB_BUCKET_HALF_BITS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value a non-negative value, for latencies in nanoseconds
+     */
+    public void record(long value) {
+        if (value < 0){
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalValue.add(value);
+        maxValue.accumulate(value);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value below or at which the given percent of recorded values fall, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++){
+            seen += counts.get(i);
+            if (seen >= rank){
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Values below {@link #SUB_BUCKET_COUNT} get a bucket each. Above that, a value is bucketed by its highest set bit
+     * (the exponent) and the {@value #SUB_BUCKET_BITS} bits below and including it (the mantissa).
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT){
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_HALF_BITS;
+        return (exponent << SUB_BUCKET_HALF_BITS) + (int) (value >>> exponent);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT){
+            return index;
+        }
+        int exponent = (index >> SUB_BUCKET_HALF_BITS) - 1;
+        long mantissa = index - ((long) exponent << SUB_BUCKET_HALF_BITS);
+        return (mantissa << exponent) + (1L << exponent) - 1;
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Open-model HTTP load generator for the SocialMediaController endpoints.
+ *
+ * Requests are started on a fixed schedule of load.rate requests per second, whether or not earlier requests have
+ * completed, and each latency is measured from the time the request was scheduled to start rather than from when it
+ * was actually sent. A stall in the app therefore shows up in the latency of every request scheduled during it,
+ * instead of silently lowering the request rate (coordinated omission). The time from send to response is recorded
+ * too, as the service time, so the two can be compared.
+ *
+ * With load.connections set, the generator runs a closed model instead: that many requests are kept in flight, each
+ * one sent as soon as the previous completes, and latency is measured from send. This shows the throughput the app
+ * sustains with a given number of concurrent connections, e.g. to compare thread modes.
+ *
+ * Before the run, load.users accounts are registered and post one message each, to give login, read, patch and delete
+ * something to work on. Operations are then drawn at random with the weights of load.mix.
+ *
+ * Run against an app that is already up with:
+ *  java -Dload.base-url=http://localhost:8080 -cp target/test-classes:... com.example.load.LoadGenerator
+ * or let {@link LoadTest} start one.
+ */
+public class LoadGenerator {
+
+    public enum Operation {
+        REGISTER, LOGIN, POST, READ, PATCH, DELETE
+    }
+
+    static final String DEFAULT_MIX = "register=5,login=10,post=20,read=50,patch=10,delete=5";
+
+    private static final int MESSAGE_ID_SLOTS = 4096;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final double ratePerSecond;
+    private final int connections;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int users;
+    private final String mixSpec;
+    private final EnumMap<Operation, Integer> mix;
+    private final int totalWeight;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final EnumMap<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final EnumMap<Operation, LongAdder> clientErrors = new EnumMap<>(Operation.class);
+    private final EnumMap<Operation, LongAdder> serverErrors = new EnumMap<>(Operation.class);
+    private final LatencyHistogram allLatencies = new LatencyHistogram();
+    private final LatencyHistogram allServiceTimes = new LatencyHistogram();
+    private final LongAdder transportErrors = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong maxInFlight = new AtomicLong();
+
+    private final List<Integer> accountIds = new ArrayList<>();
+    private final AtomicIntegerArray messageIds = new AtomicIntegerArray(MESSAGE_ID_SLOTS);
+    private final AtomicLong nextMessageSlot = new AtomicLong();
+    private final AtomicLong registrations = new AtomicLong();
+
+    /**
+     * @param baseUri where the app listens, e.g. http://localhost:8080
+     * @param ratePerSecond requests started per second, in the open model
+     * @param connections requests kept in flight in the closed model, 0 for the open model
+     * @param warmup time at the start of the run that is not measured
+     * @param duration measured time after the warmup
+     * @param users accounts registered before the run
+     * @param mixSpec comma separated operation=weight pairs, e.g. {@value #DEFAULT_MIX}
+     */
+    public LoadGenerator(URI baseUri, double ratePerSecond, int connections, Duration warmup, Duration duration, 
+            int users, String mixSpec) {
+        if (ratePerSecond <= 0 || users < 1 || connections < 0){
+            throw new IllegalArgumentException("rate and users must be positive, connections must not be negative");
+        }
+        this.baseUri = baseUri;
+        this.ratePerSecond = ratePerSecond;
+        this.connections = connections;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.users = users;
+        this.mixSpec = mixSpec;
+        this.mix = parseMix(mixSpec);
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        for (Operation operation : Operation.values()){
+            latencies.put(operation, new LatencyHistogram());
+            clientErrors.put(operation, new LongAdder());
+            serverErrors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Creates a generator from the load.* system properties.
+     */
+    public static LoadGenerator fromSystemProperties(URI defaultBaseUri) {
+        return new LoadGenerator(
+                URI.create(System.getProperty("load.base-url", defaultBaseUri.toString())),
+                Double.parseDouble(System.getProperty("load.rate", "200")),
+                Integer.getInteger("load.connections", 0),
+                Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5)),
+                Duration.ofSeconds(Long.getLong("load.duration-seconds", 30)),
+                Integer.getInteger("load.users", 50),
+                System.getProperty("load.mix", DEFAULT_MIX));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadGenerator generator = fromSystemProperties(URI.create("http://localhost:8080"));
+        String report = generator.run();
+        System.out.print(report);
+        System.out.println("Report written to " + generator.writeReport(report));
+    }
+
+    /**
+     * Registers the users, drives the mix for the warmup and the measured duration, and waits for the requests still
+     * in flight.
+     *
+     * @return the report of the measured part of the run
+     */
+    public String run() throws IOException, InterruptedException {
+        setUp();
+        long start = System.nanoTime();
+        long measuredFrom = start + warmup.toNanos();
+        long end = measuredFrom + duration.toNanos();
+        long sent = 0;
+        Random random = ThreadLocalRandom.current();
+        if (connections > 0){
+            Semaphore slots = new Semaphore(connections);
+            for (long now = System.nanoTime(); now < end; now = System.nanoTime()){
+                if (!slots.tryAcquire(end - now, TimeUnit.NANOSECONDS)){
+                    break;
+                }
+                long sentAt = System.nanoTime();
+                Operation operation = pick(random);
+                send(operation, request(operation, random), sentAt, sentAt >= measuredFrom).whenComplete(
+                        (result, error) -> slots.release());
+                if (sentAt >= measuredFrom){
+                    sent++;
+                }
+            }
+        }
+        for (long i = 0; connections == 0; i++){
+            long intendedStart = start + (long) (i * 1e9 / ratePerSecond);
+            if (intendedStart >= end){
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0){
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = pick(random);
+            send(operation, request(operation, random), intendedStart, intendedStart >= measuredFrom);
+            if (intendedStart >= measuredFrom){
+                sent++;
+            }
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline){
+            Thread.sleep(10);
+        }
+        return report(sent);
+    }
+
+    /**
+     * Writes a report to target/load-reports/load-&lt;timestamp&gt;.txt.
+     *
+     * @return the report file
+     */
+    public Path writeReport(String report) throws IOException {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = Paths.get("target", "load-reports", "load-" + timestamp + ".txt");
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, report);
+    }
+
+    private void setUp() throws IOException, InterruptedException {
+        for (int i = 0; i < users; i++){
+            HttpResponse<String> response = client.send(register("load-" + runId + "-user" + i),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200){
+                throw new IllegalStateException("Could not register load user: " + response.statusCode());
+            }
+            int accountId = objectMapper.readTree(response.body()).get("accountId").asInt();
+            accountIds.add(accountId);
+            response = client.send(post(accountId, "load message"), HttpResponse.BodyHandlers.ofString());
+            rememberMessage(response.body());
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(Operation operation, HttpRequest request, long intendedStart,
+            boolean measured) {
+        long inFlightNow = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlightNow, Math::max);
+        long sentAt = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> response = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        return response.whenComplete((result, error) -> {
+            long now = System.nanoTime();
+            try {
+                if (error != null){
+                    transportErrors.increment();
+                    return;
+                }
+                if (operation == Operation.POST && result.statusCode() == 200){
+                    rememberMessage(result.body());
+                }
+                if (!measured){
+                    return;
+                }
+                latencies.get(operation).record(now - intendedStart);
+                allLatencies.record(now - intendedStart);
+                allServiceTimes.record(now - sentAt);
+                if (result.statusCode() >= 500){
+                    serverErrors.get(operation).increment();
+                }else if (result.statusCode() >= 400){
+                    clientErrors.get(operation).increment();
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private HttpRequest request(Operation operation, Random random) {
+        int accountId = accountIds.get(random.nextInt(accountIds.size()));
+        int messageId = messageIds.get(random.nextInt((int) Math.min(MESSAGE_ID_SLOTS, Math.max(1, nextMessageSlot.get()))));
+        switch (operation){
+            case REGISTER:
+                return register("load-" + runId + "-new" + registrations.incrementAndGet());
+            case LOGIN:
+                int user = random.nextInt(users);
+                return json("POST", "/login",
+                        "{\"username\":\"load-" + runId + "-user" + user + "\",\"password\":\"password\"}");
+            case POST:
+                return post(accountId, "load message " + random.nextInt());
+            case READ:
+                return random.nextBoolean()
+                        ? HttpRequest.newBuilder(baseUri.resolve("/messages/" + messageId)).GET().build()
+                        : HttpRequest.newBuilder(baseUri.resolve("/accounts/" + accountId + "/messages")).GET().build();
+            case PATCH:
+                return json("PATCH", "/messages/" + messageId, "{\"messageText\":\"load edit " + random.nextInt() + "\"}");
+            case DELETE:
+                return HttpRequest.newBuilder(baseUri.resolve("/messages/" + messageId)).DELETE().build();
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private HttpRequest register(String username) {
+        return json("POST", "/register", "{\"username\":\"" + username + "\",\"password\":\"password\"}");
+    }
+
+    private HttpRequest post(int accountId, String text) {
+        return json("POST", "/messages",
+                "{\"postedBy\":" + accountId + ",\"messageText\":\"" + text + "\",\"timePostedEpoch\":1669947792}");
+    }
+
+    private HttpRequest json(String method, String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private void rememberMessage(String body) {
+        try {
+            JsonNode messageId = objectMapper.readTree(body).get("messageId");
+            if (messageId != null){
+                messageIds.set((int) (nextMessageSlot.getAndIncrement() % MESSAGE_ID_SLOTS), messageId.asInt());
+            }
+        } catch (IOException e) {
+            //not a message, nothing to remember
+        }
+    }
+
+    private Operation pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()){
+            ticket -= entry.getValue();
+            if (ticket < 0){
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("empty mix");
+    }
+
+    private String report(long sent) {
+        double seconds = duration.toNanos() / 1e9;
+        StringBuilder report = new StringBuilder();
+        String model = connections > 0 ? "connections=" + connections
+                : String.format(Locale.ROOT, "rate=%.1f/s", ratePerSecond);
+        report.append(String.format(Locale.ROOT, "run=%s base-url=%s %s warmup=%ds duration=%ds users=%d mix=%s%n",
+                LocalDateTime.now(), baseUri, model, warmup.getSeconds(), duration.getSeconds(), users, mixSpec));
+        report.append(String.format(Locale.ROOT, "sent=%d completed=%d achieved=%.1f/s transport-errors=%d max-in-flight=%d "
+                + "in-flight-at-end=%d%n", sent, allLatencies.getCount(), allLatencies.getCount() / seconds,
+                transportErrors.sum(), maxInFlight.get(), inFlight.get()));
+        report.append("latency from intended start, ms\n");
+        report.append(String.format(Locale.ROOT, "%-10s %8s %10s %6s %6s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "req/s", "4xx", "5xx", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (Operation operation : Operation.values()){
+            if (mix.containsKey(operation)){
+                appendRow(report, operation.name(), latencies.get(operation), clientErrors.get(operation).sum(),
+                        serverErrors.get(operation).sum(), seconds);
+            }
+        }
+        long clientErrorCount = clientErrors.values().stream().mapToLong(LongAdder::sum).sum();
+        long serverErrorCount = serverErrors.values().stream().mapToLong(LongAdder::sum).sum();
+        appendRow(report, "ALL", allLatencies, clientErrorCount, serverErrorCount, seconds);
+        report.append("service time from send, ms\n");
+        appendRow(report, "ALL", allServiceTimes, clientErrorCount, serverErrorCount, seconds);
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String name, LatencyHistogram histogram, long clientErrorCount,
+            long serverErrorCount, double seconds) {
+        report.append(String.format(Locale.ROOT, "%-10s %8d %10.1f %6d %6d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                name, histogram.getCount(), histogram.getCount() / seconds, clientErrorCount, serverErrorCount,
+                histogram.getMean() / 1e6, histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(90) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMax() / 1e6));
+    }
+
+    private static EnumMap<Operation, Integer> parseMix(String spec) {
+        EnumMap<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String pair : spec.split(",")){
+            String[] parts = pair.trim().split("=");
+            if (parts.length != 2){
+                throw new IllegalArgumentException("mix entries must look like operation=weight: " + pair);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0){
+                mix.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (mix.isEmpty()){
+            throw new IllegalArgumentException("mix has no operation with a positive weight: " + spec);
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.SocialMediaApp;
+
+/**
+ * Starts the app locally and drives it with a {@link LoadGenerator} configured by the load.* system properties 
+ * (load.rate or load.connections, load.warmup-seconds, load.duration-seconds, load.users, load.mix).
+ * 
+ * Excluded from the default build, run with: mvn test -Pbenchmark -Dtest=LoadTest -Dload.rate=500
+ * Each run writes its report to target/load-reports/load-&lt;timestamp&gt;.txt
+ */
+@Tag("benchmark")
+public class LoadTest {
+
+    @Test
+    public void mixedLoad() throws IOException, InterruptedException {
+        ApplicationContext app = SpringApplication.run(SocialMediaApp.class, new String[] {});
+        try {
+            LoadGenerator generator = LoadGenerator.fromSystemProperties(URI.create("http://localhost:8080"));
+            String report = generator.run();
+            Path file = generator.writeReport(report);
+            System.out.print(report);
+            System.out.println("Report written to " + file);
+            Assertions.assertFalse(report.isEmpty());
+        } finally {
+            SpringApplication.exit(app);
+        }
+    }
+}